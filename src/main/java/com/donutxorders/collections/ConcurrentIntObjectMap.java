@@ -0,0 +1,127 @@
+package com.donutxorders.collections;
+
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+
+/**
+ * Thread-safe {@link IntObjectHashMap}. Lookups run optimistically without taking a
+ * lock and only fall back to a read lock when a write overlapped them; writes are
+ * serialized. Suited to maps that are read far more often than they change, like
+ * the order book.
+ */
+public class ConcurrentIntObjectMap<V> {
+
+    private final IntObjectHashMap<V> map;
+    private final StampedLock lock = new StampedLock();
+
+    public ConcurrentIntObjectMap() {
+        this.map = new IntObjectHashMap<>();
+    }
+
+    public ConcurrentIntObjectMap(int expectedSize) {
+        this.map = new IntObjectHashMap<>(expectedSize);
+    }
+
+    public V get(int key) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0L) {
+            V value = map.find(key);
+            if (lock.validate(stamp)) {
+                return value;
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return map.get(key);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public boolean containsKey(int key) {
+        return get(key) != null;
+    }
+
+    public V put(int key, V value) {
+        long stamp = lock.writeLock();
+        try {
+            return map.put(key, value);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public V remove(int key) {
+        long stamp = lock.writeLock();
+        try {
+            return map.remove(key);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public int size() {
+        long stamp = lock.tryOptimisticRead();
+        int size = map.size();
+        if (stamp != 0L && lock.validate(stamp)) {
+            return size;
+        }
+        stamp = lock.readLock();
+        try {
+            return map.size();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public void clear() {
+        long stamp = lock.writeLock();
+        try {
+            map.clear();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Pass every value to the action under the read lock. The action may read this
+     * map but must not modify it, or it deadlocks.
+     */
+    public void forEachValue(Consumer<? super V> action) {
+        long stamp = lock.readLock();
+        try {
+            map.forEachValue(action);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Consistent copy of the values
+     */
+    public List<V> values() {
+        long stamp = lock.readLock();
+        try {
+            return map.values();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Consistent copy of the keys
+     */
+    public int[] keys() {
+        long stamp = lock.readLock();
+        try {
+            return map.keys();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+}
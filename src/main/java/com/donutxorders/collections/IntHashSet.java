@@ -0,0 +1,183 @@
+package com.donutxorders.collections;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Hash set of primitive ints with linear probing and backward-shift removal. Zero
+ * marks a free slot, so the key 0 itself is tracked by a flag.
+ *
+ * Not thread-safe.
+ */
+public class IntHashSet {
+
+    private static final int FREE = 0;
+
+    private int[] keys;
+    private boolean containsZero;
+    // Keys stored in the table, not counting zero
+    private int assigned;
+    private int maxFill;
+
+    public IntHashSet() {
+        allocate(IntHashing.DEFAULT_CAPACITY);
+    }
+
+    public IntHashSet(int expectedSize) {
+        allocate(IntHashing.capacityFor(expectedSize));
+    }
+
+    /**
+     * Add a key, returning false if it was already present
+     */
+    public boolean add(int key) {
+        if (key == FREE) {
+            boolean added = !containsZero;
+            containsZero = true;
+            return added;
+        }
+        int mask = keys.length - 1;
+        int slot = IntHashing.mix(key) & mask;
+        while (keys[slot] != FREE) {
+            if (keys[slot] == key) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        if (++assigned > maxFill && keys.length < IntHashing.MAX_CAPACITY) {
+            rehash(keys.length << 1);
+        }
+        return true;
+    }
+
+    /**
+     * Remove a key, returning false if it was absent
+     */
+    public boolean remove(int key) {
+        if (key == FREE) {
+            boolean removed = containsZero;
+            containsZero = false;
+            return removed;
+        }
+        int mask = keys.length - 1;
+        int slot = IntHashing.mix(key) & mask;
+        while (keys[slot] != FREE) {
+            if (keys[slot] == key) {
+                shiftBack(slot);
+                assigned--;
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    public boolean contains(int key) {
+        if (key == FREE) {
+            return containsZero;
+        }
+        int mask = keys.length - 1;
+        int slot = IntHashing.mix(key) & mask;
+        while (keys[slot] != FREE) {
+            if (keys[slot] == key) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    public int size() {
+        return assigned + (containsZero ? 1 : 0);
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, FREE);
+        assigned = 0;
+        containsZero = false;
+    }
+
+    /**
+     * Pass every key to the action, in table order
+     */
+    public void forEach(IntConsumer action) {
+        if (containsZero) {
+            action.accept(FREE);
+        }
+        for (int key : keys) {
+            if (key != FREE) {
+                action.accept(key);
+            }
+        }
+    }
+
+    /**
+     * Copy of the keys
+     */
+    public int[] toArray() {
+        int[] copy = new int[size()];
+        int index = 0;
+        if (containsZero) {
+            copy[index++] = FREE;
+        }
+        for (int key : keys) {
+            if (key != FREE) {
+                copy[index++] = key;
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * Return every key and empty the set
+     */
+    public int[] drain() {
+        int[] drained = toArray();
+        clear();
+        return drained;
+    }
+
+    // Close the gap left by a removal by moving back later keys of the same probe run
+    private void shiftBack(int gap) {
+        int mask = keys.length - 1;
+        int slot = gap;
+        while (true) {
+            slot = (slot + 1) & mask;
+            int key = keys[slot];
+            if (key == FREE) {
+                break;
+            }
+            int home = IntHashing.mix(key) & mask;
+            if (((slot - home) & mask) >= ((slot - gap) & mask)) {
+                keys[gap] = key;
+                gap = slot;
+            }
+        }
+        keys[gap] = FREE;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        allocate(capacity);
+        int mask = capacity - 1;
+        for (int key : oldKeys) {
+            if (key != FREE) {
+                int slot = IntHashing.mix(key) & mask;
+                while (keys[slot] != FREE) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        maxFill = IntHashing.maxFill(capacity);
+    }
+}
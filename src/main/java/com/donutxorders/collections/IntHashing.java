@@ -0,0 +1,41 @@
+package com.donutxorders.collections;
+
+/**
+ * Hashing and sizing shared by the open-addressing int collections
+ */
+final class IntHashing {
+
+    static final int DEFAULT_CAPACITY = 16;
+    // Small enough that the many tiny sets of an index stay cheap
+    static final int MIN_CAPACITY = 4;
+    static final int MAX_CAPACITY = 1 << 30;
+
+    private IntHashing() {
+    }
+
+    /**
+     * Spread sequential ids across the table so linear probe runs stay short
+     */
+    static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Smallest power-of-two capacity that holds the given number of keys under 3/4 load
+     */
+    static int capacityFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < MAX_CAPACITY && maxFill(capacity) < expectedSize) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    /**
+     * Number of keys a table of this capacity holds before it grows
+     */
+    static int maxFill(int capacity) {
+        return capacity - (capacity >>> 2);
+    }
+}
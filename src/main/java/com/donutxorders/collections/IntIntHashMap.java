@@ -0,0 +1,151 @@
+package com.donutxorders.collections;
+
+import java.util.Arrays;
+
+/**
+ * Hash map from primitive int keys to primitive int values, with the same linear
+ * probing and backward-shift removal as {@link IntObjectHashMap}. Absent keys read
+ * as the missing value given at construction.
+ *
+ * Not thread-safe.
+ */
+public class IntIntHashMap {
+
+    private final int missingValue;
+    private int[] keys;
+    private int[] values;
+    private boolean[] used;
+    private int size;
+    private int maxFill;
+
+    public IntIntHashMap(int missingValue) {
+        this.missingValue = missingValue;
+        allocate(IntHashing.DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Value mapped to the key, or the missing value
+     */
+    public int get(int key) {
+        int mask = keys.length - 1;
+        int slot = IntHashing.mix(key) & mask;
+        while (used[slot]) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return missingValue;
+    }
+
+    public boolean containsKey(int key) {
+        int mask = keys.length - 1;
+        int slot = IntHashing.mix(key) & mask;
+        while (used[slot]) {
+            if (keys[slot] == key) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * Map the key to the value, returning the previous value or the missing value
+     */
+    public int put(int key, int value) {
+        int mask = keys.length - 1;
+        int slot = IntHashing.mix(key) & mask;
+        while (used[slot]) {
+            if (keys[slot] == key) {
+                int previous = values[slot];
+                values[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        used[slot] = true;
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > maxFill && keys.length < IntHashing.MAX_CAPACITY) {
+            rehash(keys.length << 1);
+        }
+        return missingValue;
+    }
+
+    /**
+     * Remove the key, returning its value or the missing value
+     */
+    public int remove(int key) {
+        int mask = keys.length - 1;
+        int slot = IntHashing.mix(key) & mask;
+        while (used[slot]) {
+            if (keys[slot] == key) {
+                int previous = values[slot];
+                shiftBack(slot);
+                size--;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return missingValue;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(used, false);
+        size = 0;
+    }
+
+    // Close the gap left by a removal by moving back later entries of the same probe run
+    private void shiftBack(int gap) {
+        int mask = keys.length - 1;
+        int slot = gap;
+        while (true) {
+            slot = (slot + 1) & mask;
+            if (!used[slot]) {
+                break;
+            }
+            int home = IntHashing.mix(keys[slot]) & mask;
+            if (((slot - home) & mask) >= ((slot - gap) & mask)) {
+                keys[gap] = keys[slot];
+                values[gap] = values[slot];
+                gap = slot;
+            }
+        }
+        used[gap] = false;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        boolean[] oldUsed = used;
+        allocate(capacity);
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) {
+                int slot = IntHashing.mix(oldKeys[i]) & mask;
+                while (used[slot]) {
+                    slot = (slot + 1) & mask;
+                }
+                used[slot] = true;
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        used = new boolean[capacity];
+        maxFill = IntHashing.maxFill(capacity);
+    }
+}
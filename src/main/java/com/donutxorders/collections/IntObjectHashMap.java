@@ -0,0 +1,227 @@
+package com.donutxorders.collections;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Hash map from primitive int keys to non-null values. Keys live in an int array and
+ * are never boxed; collisions use linear probing and removals shift the following
+ * entries back, so no tombstones build up in a long-lived map.
+ *
+ * Not thread-safe; see {@link ConcurrentIntObjectMap}.
+ */
+public class IntObjectHashMap<V> {
+
+    // Slot i is free when values[i] is null
+    private int[] keys;
+    private Object[] values;
+    private int size;
+    private int maxFill;
+
+    public IntObjectHashMap() {
+        allocate(IntHashing.DEFAULT_CAPACITY);
+    }
+
+    public IntObjectHashMap(int expectedSize) {
+        allocate(IntHashing.capacityFor(expectedSize));
+    }
+
+    /**
+     * Value mapped to the key, or null
+     */
+    public V get(int key) {
+        return find(key);
+    }
+
+    public boolean containsKey(int key) {
+        return find(key) != null;
+    }
+
+    /**
+     * Map the key to the value, returning the previous value or null
+     */
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        Objects.requireNonNull(value, "value");
+        int mask = values.length - 1;
+        int slot = IntHashing.mix(key) & mask;
+        while (values[slot] != null) {
+            if (keys[slot] == key) {
+                V previous = (V) values[slot];
+                values[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > maxFill && values.length < IntHashing.MAX_CAPACITY) {
+            rehash(values.length << 1);
+        }
+        return null;
+    }
+
+    /**
+     * Remove the key, returning its value or null
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        int mask = values.length - 1;
+        int slot = IntHashing.mix(key) & mask;
+        while (values[slot] != null) {
+            if (keys[slot] == key) {
+                V previous = (V) values[slot];
+                shiftBack(slot);
+                size--;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    /**
+     * Pass every value to the action, in table order
+     */
+    @SuppressWarnings("unchecked")
+    public void forEachValue(Consumer<? super V> action) {
+        Object[] table = values;
+        for (Object value : table) {
+            if (value != null) {
+                action.accept((V) value);
+            }
+        }
+    }
+
+    /**
+     * Pass every key and value to the action, in table order
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(EntryConsumer<? super V> action) {
+        int[] keyTable = keys;
+        Object[] table = values;
+        for (int i = 0; i < table.length; i++) {
+            if (table[i] != null) {
+                action.accept(keyTable[i], (V) table[i]);
+            }
+        }
+    }
+
+    /**
+     * Copy of the values
+     */
+    public List<V> values() {
+        List<V> copy = new ArrayList<>(size);
+        forEachValue(copy::add);
+        return copy;
+    }
+
+    /**
+     * Copy of the keys
+     */
+    public int[] keys() {
+        int[] copy = new int[size];
+        int index = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                copy[index++] = keys[i];
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * Probe for a key. The probe is bounded and tolerates a table that is being
+     * rewritten, so {@link ConcurrentIntObjectMap} can run it without a lock and
+     * validate the result afterwards.
+     */
+    @SuppressWarnings("unchecked")
+    V find(int key) {
+        int[] keyTable = keys;
+        Object[] table = values;
+        if (keyTable.length != table.length) {
+            return null;
+        }
+        int mask = table.length - 1;
+        int slot = IntHashing.mix(key) & mask;
+        for (int probes = 0; probes < table.length; probes++) {
+            Object value = table[slot];
+            if (value == null) {
+                return null;
+            }
+            if (keyTable[slot] == key) {
+                return (V) value;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    // Close the gap left by a removal by moving back later entries of the same probe run
+    private void shiftBack(int gap) {
+        int mask = values.length - 1;
+        int slot = gap;
+        while (true) {
+            slot = (slot + 1) & mask;
+            Object value = values[slot];
+            if (value == null) {
+                break;
+            }
+            int home = IntHashing.mix(keys[slot]) & mask;
+            // The entry may fill the gap only if the gap lies between its home and its slot
+            if (((slot - home) & mask) >= ((slot - gap) & mask)) {
+                keys[gap] = keys[slot];
+                values[gap] = value;
+                gap = slot;
+            }
+        }
+        values[gap] = null;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        int mask = capacity - 1;
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                int slot = IntHashing.mix(oldKeys[i]) & mask;
+                while (values[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new Object[capacity];
+        maxFill = IntHashing.maxFill(capacity);
+    }
+
+    /**
+     * Receives a primitive key with its value
+     */
+    @FunctionalInterface
+    public interface EntryConsumer<V> {
+        void accept(int key, V value);
+    }
+}
@@ -2,7 +2,11 @@ package com.donutxorders.commands;
 
 import com.donutxorders.core.DonutxOrders;
 import com.donutxorders.core.ConfigManager;
+import com.donutxorders.managers.OrderManager;
+import com.donutxorders.models.Order;
+import com.donutxorders.models.OrderStatus;
 import com.donutxorders.models.PlayerData;
+import org.bukkit.Material;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.command.Command;
@@ -10,13 +14,19 @@ import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
 import org.bukkit.command.TabCompleter;
 import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Locale;
 
 public class OrderCommand implements CommandExecutor, TabCompleter {
 
+    // Orders listed by /orders history
+    private static final int HISTORY_LINES = 10;
+
     private final DonutxOrders plugin;
     private final ConfigManager configManager;
 
@@ -55,18 +65,79 @@ public class OrderCommand implements CommandExecutor, TabCompleter {
             return true;
         }
 
+        // /orders deliver - open a delivery window for the best-paying order that wants the held item
+        if (args.length == 1 && args[0].equalsIgnoreCase("deliver")) {
+            if (!(sender instanceof Player)) {
+                sender.sendMessage(ChatColor.RED + "Only players can use this command.");
+                return true;
+            }
+            Player player = (Player) sender;
+            ItemStack held = player.getInventory().getItemInMainHand();
+            if (held == null || held.getType() == Material.AIR) {
+                player.sendMessage(ChatColor.RED + "Hold the item you want to deliver.");
+                return true;
+            }
+            plugin.getOrderManager().getDeliveryGUI().openBestMatch(player, held);
+            return true;
+        }
+
+        // /orders history [status|all] [sort] - admin view over every order, closed ones included
+        if (args.length <= 3 && args[0].equalsIgnoreCase("history")) {
+            if (!sender.hasPermission("donutxorders.admin")) {
+                sender.sendMessage(ChatColor.RED + "You do not have permission to view the order history.");
+                return true;
+            }
+            OrderStatus status = null;
+            if (args.length >= 2 && !args[1].equalsIgnoreCase("all")) {
+                try {
+                    status = OrderStatus.valueOf(args[1].toUpperCase(Locale.ROOT));
+                } catch (IllegalArgumentException e) {
+                    sender.sendMessage(ChatColor.RED + "Unknown status: " + args[1]);
+                    return true;
+                }
+            }
+            showHistory(sender, status, args.length == 3 ? args[2] : "-created");
+            return true;
+        }
+
         // Unknown or invalid usage
-        sender.sendMessage(ChatColor.RED + "Invalid usage. Try /order or /orders reload");
+        sender.sendMessage(ChatColor.RED + "Invalid usage. Try /order, /orders deliver, /orders history or /orders reload");
         return true;
     }
 
+    // Sort and filter the whole book off the main thread, then reply on it
+    private void showHistory(CommandSender sender, OrderStatus status, String sortBy) {
+        OrderManager orderManager = plugin.getOrderManager();
+        Comparator<Order> comparator = OrderManager.comparatorFor(sortBy);
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            List<Order> history = orderManager.getOrderHistory(
+                    order -> status == null || order.getStatus() == status, comparator);
+            Bukkit.getScheduler().runTask(plugin, () -> {
+                sender.sendMessage(ChatColor.GREEN + "Order history: " + history.size() + " orders, sorted by " + sortBy);
+                for (int i = 0; i < history.size() && i < HISTORY_LINES; i++) {
+                    Order order = history.get(i);
+                    String item = order.getItemStack() != null ? order.getItemStack().getType().name().toLowerCase() : "?";
+                    sender.sendMessage(ChatColor.GRAY + "#" + order.getId() + " " + ChatColor.WHITE + order.getStatus()
+                            + ChatColor.GRAY + " " + item + " " + order.getDeliveredAmount() + "/" + order.getQuantity()
+                            + ChatColor.YELLOW + " $" + order.getPricePerItem());
+                }
+            });
+        });
+    }
+
     @Override
     public List<String> onTabComplete(CommandSender sender, Command command, String alias, String[] args) {
         List<String> completions = new ArrayList<>();
         if (args.length == 1) {
+            if ("deliver".startsWith(args[0].toLowerCase())) {
+                completions.add("deliver");
+            }
             if ("reload".startsWith(args[0].toLowerCase()) && sender.hasPermission("donutxorders.admin")) {
                 completions.add("reload");
             }
+            if ("history".startsWith(args[0].toLowerCase()) && sender.hasPermission("donutxorders.admin")) {
+                completions.add("history");
+            }
         }
         return completions;
     }
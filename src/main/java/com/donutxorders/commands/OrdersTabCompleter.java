@@ -21,9 +21,15 @@ public class OrdersTabCompleter implements TabCompleter {
 
         // /orders <subcommand> [args...]
         if (args.length == 1) {
+            if ("deliver".startsWith(args[0].toLowerCase())) {
+                completions.add("deliver");
+            }
             if ("reload".startsWith(args[0].toLowerCase()) && sender.hasPermission("donutxorders.admin")) {
                 completions.add("reload");
             }
+            if ("history".startsWith(args[0].toLowerCase()) && sender.hasPermission("donutxorders.admin")) {
+                completions.add("history");
+            }
             // Suggest online player names
             for (Player player : Bukkit.getOnlinePlayers()) {
                 if (player.getName().toLowerCase().startsWith(args[0].toLowerCase())) {
@@ -183,6 +183,11 @@ public class ConfigManager {
         config.set("database.connection-pool.connection-timeout", 30000);
         config.set("database.connection-pool.idle-timeout", 600000);
         config.set("database.connection-pool.max-lifetime", 1800000);
+        config.set("database.writer.batch-size", 64);
+        config.set("database.writer.batch-delay-ms", 5);
+        config.set("database.writer.busy-timeout", 5000);
+        config.set("database.verify-query-plans", true);
+        config.set("database.fetch-size", 500);
         
         // Economy settings
         config.set("economy.enabled", true);
@@ -205,6 +210,7 @@ public class ConfigManager {
         config.set("gui.size", 54);
         config.set("gui.update-interval", 20);
         config.set("gui.close-on-click-outside", true);
+        config.set("gui.result-cache-size", 64);
         
         // GUI Items
         createGUIItemDefaults();
@@ -229,9 +235,16 @@ public class ConfigManager {
         config.set("sounds.page-turn", "ITEM_BOOK_PAGE_TURN");
         
         // Tasks
-        config.set("tasks.order-expiration-interval", 600);
+        config.set("tasks.expiration-check-ticks", 20);
+        config.set("tasks.expiration-batch-size", 500);
         config.set("tasks.database-cleanup-interval", 86400);
         config.set("tasks.auto-save-interval", 300);
+        config.set("tasks.order-flush-interval", 5);
+        config.set("tasks.order-flush-batch-size", 500);
+
+        // Performance
+        config.set("performance.parallel-threshold", 50000);
+        config.set("performance.parallel-threads", 0);
         
         // Metrics
         config.set("metrics.enabled", true);
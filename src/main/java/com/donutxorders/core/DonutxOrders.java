@@ -36,6 +36,7 @@ public class DonutxOrders extends JavaPlugin {
     // Tasks
     private BukkitTask orderExpirationTask;
     private BukkitTask databaseCleanupTask;
+    private BukkitTask orderFlushTask;
     
     // Plugin state
     private boolean isEnabled = false;
@@ -107,6 +108,7 @@ public class DonutxOrders extends JavaPlugin {
             } catch (Exception e) {
                 getLogger().log(Level.WARNING, "Error while saving order data during shutdown", e);
             }
+            orderManager.shutdown();
         }
         
         // Close database connections
@@ -179,10 +181,11 @@ public class DonutxOrders extends JavaPlugin {
             permissionManager = new PermissionManager(this);
 
             // Initialize Item Manager
-            itemManager = new com.donutxorders.managers.ItemManager();
+            itemManager = new ItemManager(databaseManager.getMaterialTable(), databaseManager.getItemTemplates());
             
             // Initialize Order Manager
             orderManager = new OrderManager(this);
+            orderManager.loadOrderBook();
             
             getLogger().info("All managers initialized successfully");
             return true;
@@ -219,14 +222,14 @@ public class DonutxOrders extends JavaPlugin {
     private void startBackgroundTasks() {
         if (configManager == null) return;
         try {
-            // Order expiration task
-            int expirationInterval = configManager.getConfig().getInt("tasks.order-expiration-interval", 600); // 10 minutes default
+            // Order expiration task, polling the deadline queue
+            long expirationCheckTicks = Math.max(1, configManager.getConfig().getInt("tasks.expiration-check-ticks", 20)); // 1 second default
             orderExpirationTask = new BukkitRunnable() {
                 @Override
                 public void run() {
                     new OrderExpirationTask(DonutxOrders.this).run();
                 }
-            }.runTaskTimerAsynchronously(this, expirationInterval * 20L, expirationInterval * 20L);
+            }.runTaskTimerAsynchronously(this, expirationCheckTicks, expirationCheckTicks);
 
             // Database cleanup task
             int cleanupInterval = configManager.getConfig().getInt("tasks.database-cleanup-interval", 86400); // 24 hours default
@@ -237,6 +240,17 @@ public class DonutxOrders extends JavaPlugin {
                 }
             }.runTaskTimerAsynchronously(this, cleanupInterval * 20L, cleanupInterval * 20L);
 
+            // Order book write-behind flush
+            int flushInterval = Math.max(1, configManager.getConfig().getInt("tasks.order-flush-interval", 5)); // 5 seconds default
+            orderFlushTask = new BukkitRunnable() {
+                @Override
+                public void run() {
+                    if (orderManager != null) {
+                        orderManager.flushDirtyOrders();
+                    }
+                }
+            }.runTaskTimerAsynchronously(this, flushInterval * 20L, flushInterval * 20L);
+
             getLogger().info("Background tasks started successfully");
         } catch (Exception e) {
             getLogger().log(Level.WARNING, "Failed to start some background tasks", e);
@@ -261,6 +275,15 @@ public class DonutxOrders extends JavaPlugin {
                 getLogger().log(Level.WARNING, "Error cancelling database cleanup task", e);
             }
         }
+        
+        if (orderFlushTask != null) {
+            try {
+                orderFlushTask.cancel();
+                orderFlushTask = null;
+            } catch (Exception e) {
+                getLogger().log(Level.WARNING, "Error cancelling order flush task", e);
+            }
+        }
     }
     
     private void initializeBStats() {
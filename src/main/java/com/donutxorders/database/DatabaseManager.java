@@ -2,15 +2,30 @@ package com.donutxorders.database;
 
 import com.donutxorders.core.DonutxOrders;
 import com.donutxorders.models.Order;
+import com.donutxorders.models.OrderField;
+import com.donutxorders.models.OrderItem;
+import com.donutxorders.models.OrderStatus;
 
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
 import org.bukkit.configuration.file.FileConfiguration;
 
+import java.io.File;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 
 public abstract class DatabaseManager {
@@ -22,15 +37,54 @@ public abstract class DatabaseManager {
     protected final DonutxOrders plugin;
     protected final FileConfiguration config;
     
-    protected final ConcurrentHashMap<String, PreparedStatement> preparedStatements;
+    // SQL text for each fixed statement, built once
+    protected final Map<SqlStatement, String> statementSql = new EnumMap<>(SqlStatement.class);
+    
+    // Prepared statement caches keyed by physical connection
+    private final Map<Connection, StatementCache> statementCaches = new ConcurrentHashMap<>();
+    private final AtomicLong statementCacheHits = new AtomicLong();
+    private final AtomicLong statementCacheMisses = new AtomicLong();
     
     // SQLite database file path
     protected String databaseFilePath;
     
+    // Connection pool settings
+    protected int maximumPoolSize;
+    protected int minimumIdle;
+    protected long connectionTimeout;
+    protected long idleTimeout;
+    protected long maxLifetime;
+    
+    // Writer settings
+    protected int writerBatchSize;
+    protected long writerBatchDelay;
+    protected int busyTimeout;
+    
+    // Fail startup when a hot query is not served by an index
+    protected boolean verifyQueryPlans;
+    
+    // Rows fetched per step by streaming reads
+    protected int fetchSize;
+    
+    // Pooled data source for reads
+    protected volatile HikariDataSource dataSource;
+    
+    // Single writer thread that owns the only write connection
+    protected volatile DatabaseWriter writer;
+    
     // Table names
     protected static final String ORDERS_TABLE = "donutx_orders";
     protected static final String ORDER_ITEMS_TABLE = "donutx_order_items";
     protected static final String PLAYER_DATA_TABLE = "donutx_player_data";
+    protected static final String SCHEMA_VERSION_TABLE = "donutx_schema_version";
+    protected static final String MATERIALS_TABLE = "donutx_materials";
+    protected static final String ITEM_TEMPLATES_TABLE = "donutx_item_templates";
+    
+    // Stable material ids used by the item codec
+    protected final MaterialTable materialTable = new MaterialTable(MATERIALS_TABLE);
+    
+    // Interned item variants referenced by orders
+    protected final ItemTemplateTable itemTemplates;
     
     /**
      * Factory method to create appropriate database manager
@@ -42,7 +96,7 @@ public abstract class DatabaseManager {
     protected DatabaseManager(DonutxOrders plugin) {
         this.plugin = plugin;
         this.config = plugin.getConfigManager().getConfig();
-        this.preparedStatements = new ConcurrentHashMap<>();
+        this.itemTemplates = new ItemTemplateTable(ITEM_TEMPLATES_TABLE, materialTable, plugin.getLogger());
         loadDatabaseSettings();
         // Explicitly load SQLite JDBC driver for both Paper and Spigot
         try {
@@ -57,8 +111,50 @@ public abstract class DatabaseManager {
      * Load database settings from configuration
      */
     private void loadDatabaseSettings() {
-        // Only load SQLite file path
-        databaseFilePath = config.getString("database.file", "plugins/DonutxOrders/orders.db");
+        databaseFilePath = config.getString("database.file", new File(plugin.getDataFolder(), "orders.db").getPath());
+        
+        // Connection pool settings
+        maximumPoolSize = Math.max(1, config.getInt("database.connection-pool.maximum-pool-size", 10));
+        minimumIdle = Math.max(0, Math.min(maximumPoolSize, config.getInt("database.connection-pool.minimum-idle", 2)));
+        connectionTimeout = config.getLong("database.connection-pool.connection-timeout", 30000L);
+        idleTimeout = config.getLong("database.connection-pool.idle-timeout", 600000L);
+        maxLifetime = config.getLong("database.connection-pool.max-lifetime", 1800000L);
+        
+        // Writer settings
+        writerBatchSize = Math.max(1, config.getInt("database.writer.batch-size", 64));
+        writerBatchDelay = Math.max(0L, config.getLong("database.writer.batch-delay-ms", 5L));
+        busyTimeout = Math.max(0, config.getInt("database.writer.busy-timeout", 5000));
+        
+        verifyQueryPlans = config.getBoolean("database.verify-query-plans", true);
+        fetchSize = Math.max(1, config.getInt("database.fetch-size", 500));
+    }
+    
+    /**
+     * SQLite driver properties shared by pooled and writer connections
+     */
+    protected Properties createConnectionProperties() {
+        Properties properties = new Properties();
+        properties.setProperty("journal_mode", "WAL");
+        properties.setProperty("synchronous", "NORMAL");
+        properties.setProperty("busy_timeout", String.valueOf(busyTimeout));
+        return properties;
+    }
+    
+    /**
+     * Build the connection pool configuration
+     */
+    protected HikariConfig createPoolConfig() {
+        HikariConfig poolConfig = new HikariConfig();
+        poolConfig.setPoolName("DonutxOrders-SQLite");
+        poolConfig.setDriverClassName("org.sqlite.JDBC");
+        poolConfig.setJdbcUrl("jdbc:sqlite:" + databaseFilePath);
+        poolConfig.setMaximumPoolSize(maximumPoolSize);
+        poolConfig.setMinimumIdle(minimumIdle);
+        poolConfig.setConnectionTimeout(connectionTimeout);
+        poolConfig.setIdleTimeout(idleTimeout);
+        poolConfig.setMaxLifetime(maxLifetime);
+        poolConfig.setDataSourceProperties(createConnectionProperties());
+        return poolConfig;
     }
     
     /**
@@ -85,6 +181,12 @@ public abstract class DatabaseManager {
                     return false;
                 }
                 
+                // Check that hot queries use indexes
+                if (verifyQueryPlans && !verifyQueryPlans()) {
+                    plugin.getLogger().severe("Hot queries are not covered by indexes (set database.verify-query-plans to false to skip this check)");
+                    return false;
+                }
+                
                 plugin.getLogger().info("Database initialized successfully");
                 return true;
             } catch (Exception e) {
@@ -98,10 +200,22 @@ public abstract class DatabaseManager {
      * Connect to the database
      */
     public boolean connect() {
-        try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + databaseFilePath)) {
+        File parent = new File(databaseFilePath).getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+        
+        try {
+            dataSource = new HikariDataSource(createPoolConfig());
+        } catch (RuntimeException e) {
+            plugin.getLogger().log(Level.SEVERE, "Failed to create database connection pool", e);
+            return false;
+        }
+        
+        try (Connection connection = getConnection()) {
             if (connection.isValid(5)) {
-                plugin.getLogger().info("Database connection established successfully");
-                return true;
+                plugin.getLogger().info("Database connection pool established successfully (max size: " + maximumPoolSize + ")");
+                return startWriter();
             } else {
                 plugin.getLogger().severe("Database connection test failed");
                 return false;
@@ -113,22 +227,76 @@ public abstract class DatabaseManager {
     }
     
     /**
-     * Disconnect from the database
+     * Open the dedicated write connection and start the writer thread
      */
-    public void disconnect() {
+    protected boolean startWriter() {
         try {
-            // Close prepared statements
-            for (PreparedStatement statement : preparedStatements.values()) {
-                if (statement != null && !statement.isClosed()) {
-                    statement.close();
-                }
+            Connection connection = DriverManager.getConnection("jdbc:sqlite:" + databaseFilePath, createConnectionProperties());
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("PRAGMA journal_mode=WAL");
             }
-            preparedStatements.clear();
+            DatabaseWriter databaseWriter = new DatabaseWriter(plugin, connection, writerBatchSize, writerBatchDelay);
+            databaseWriter.start();
+            writer = databaseWriter;
+            return true;
         } catch (SQLException e) {
-            plugin.getLogger().log(Level.WARNING, "Error while disconnecting from database", e);
+            plugin.getLogger().log(Level.SEVERE, "Failed to start database writer", e);
+            return false;
+        }
+    }
+    
+    /**
+     * Queue a write on the writer thread
+     */
+    protected <T> CompletableFuture<T> submitWrite(DatabaseWriter.WriteOperation<T> operation) {
+        DatabaseWriter databaseWriter = writer;
+        if (databaseWriter == null) {
+            CompletableFuture<T> failed = new CompletableFuture<>();
+            failed.completeExceptionally(new SQLException("Database writer is not running"));
+            return failed;
+        }
+        return databaseWriter.submit(operation);
+    }
+    
+    /**
+     * Disconnect from the database
+     */
+    public void disconnect() {
+        // Flush queued writes before the pool goes away
+        DatabaseWriter databaseWriter = writer;
+        writer = null;
+        if (databaseWriter != null) {
+            databaseWriter.shutdown();
+        }
+        
+        // Close cached statements; pooled connections are still open here
+        for (StatementCache cache : statementCaches.values()) {
+            cache.close();
+        }
+        statementCaches.clear();
+        
+        // Close the connection pool
+        HikariDataSource pool = dataSource;
+        dataSource = null;
+        if (pool != null && !pool.isClosed()) {
+            pool.close();
         }
     }
     
+    /**
+     * Get the material id table used to encode item data
+     */
+    public MaterialTable getMaterialTable() {
+        return materialTable;
+    }
+    
+    /**
+     * Get the item template intern pool
+     */
+    public ItemTemplateTable getItemTemplates() {
+        return itemTemplates;
+    }
+    
     /**
      * Create database tables
      */
@@ -152,6 +320,13 @@ public abstract class DatabaseManager {
                 statement.execute(createPlayerDataTable);
             }
             
+            // Apply pending schema migrations
+            new SchemaMigrator(plugin, SCHEMA_VERSION_TABLE).migrate(connection, getMigrations());
+            
+            // Load material ids and item templates for item data
+            materialTable.load(connection);
+            itemTemplates.load(connection);
+            
             plugin.getLogger().info("Database tables created successfully");
             return true;
         } catch (SQLException e) {
@@ -160,6 +335,28 @@ public abstract class DatabaseManager {
         }
     }
     
+    /**
+     * Verify with EXPLAIN QUERY PLAN that no hot query scans a whole table
+     */
+    public boolean verifyQueryPlans() {
+        try (Connection connection = getConnection()) {
+            return new SchemaMigrator(plugin, SCHEMA_VERSION_TABLE).verifyQueryPlans(connection, getHotQueries());
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.SEVERE, "Failed to verify query plans", e);
+            return false;
+        }
+    }
+    
+    /**
+     * Get the ordered schema migrations for this database
+     */
+    protected abstract List<SchemaMigration> getMigrations();
+    
+    /**
+     * Get the queries that must be served by an index, keyed by name
+     */
+    protected abstract Map<String, String> getHotQueries();
+    
     /**
      * Get SQL for creating orders table
      */
@@ -176,34 +373,22 @@ public abstract class DatabaseManager {
     protected abstract String getCreatePlayerDataTableSQL();
     
     /**
-     * Prepare frequently used SQL statements
+     * Build the SQL text of every fixed statement once and check that each one prepares
      */
     protected boolean prepareStatements() {
+        for (SqlStatement key : SqlStatement.values()) {
+            statementSql.put(key, buildSQL(key));
+        }
+        
         try (Connection connection = getConnection()) {
-            // Order management statements
-            prepareStatement("INSERT_ORDER", getInsertOrderSQL());
-            prepareStatement("UPDATE_ORDER", getUpdateOrderSQL());
-            prepareStatement("DELETE_ORDER", getDeleteOrderSQL());
-            prepareStatement("SELECT_ORDER", getSelectOrderSQL());
-            prepareStatement("SELECT_PLAYER_ORDERS", getSelectPlayerOrdersSQL());
-            prepareStatement("SELECT_ALL_ORDERS", getSelectAllOrdersSQL());
-            prepareStatement("SELECT_EXPIRED_ORDERS", getSelectExpiredOrdersSQL());
-            
-            // Order items statements
-            prepareStatement("INSERT_ORDER_ITEM", getInsertOrderItemSQL());
-            prepareStatement("DELETE_ORDER_ITEMS", getDeleteOrderItemsSQL());
-            prepareStatement("SELECT_ORDER_ITEMS", getSelectOrderItemsSQL());
-            
-            // Player data statements
-            prepareStatement("INSERT_PLAYER_DATA", getInsertPlayerDataSQL());
-            prepareStatement("UPDATE_PLAYER_DATA", getUpdatePlayerDataSQL());
-            prepareStatement("SELECT_PLAYER_DATA", getSelectPlayerDataSQL());
-            
-            // Cleanup statements
-            prepareStatement("DELETE_EXPIRED_ORDERS", getDeleteExpiredOrdersSQL());
-            prepareStatement("DELETE_ORPHANED_ITEMS", getDeleteOrphanedItemsSQL());
-            
-            plugin.getLogger().info("Prepared statements created successfully");
+            StatementCache cache = statements(connection);
+            for (SqlStatement key : SqlStatement.values()) {
+                cache.get(key);
+                if (plugin.getConfigManager().isDebugMode()) {
+                    plugin.getLogger().info("Prepared statement: " + key);
+                }
+            }
+            plugin.getLogger().info("Prepared " + statementSql.size() + " statements successfully");
             return true;
         } catch (SQLException e) {
             plugin.getLogger().log(Level.SEVERE, "Failed to prepare statements", e);
@@ -212,11 +397,81 @@ public abstract class DatabaseManager {
     }
     
     /**
-     * Prepare a statement and store it in the cache
+     * Get the SQL text for a fixed statement
+     */
+    private String buildSQL(SqlStatement key) {
+        switch (key) {
+            case INSERT_ORDER: return getInsertOrderSQL();
+            case UPDATE_ORDER: return getUpdateOrderSQL();
+            case UPDATE_ORDER_STATUS: return getUpdateOrderStatusSQL();
+            case DELETE_ORDER: return getDeleteOrderSQL();
+            case SELECT_ORDER: return getSelectOrderSQL();
+            case SELECT_PLAYER_ORDERS: return getSelectPlayerOrdersSQL();
+            case SELECT_ALL_ORDERS: return getSelectAllOrdersSQL();
+            case SELECT_ALL_ORDERS_WITH_ITEMS: return getSelectAllOrdersWithItemsSQL();
+            case SELECT_PLAYER_ORDERS_WITH_ITEMS: return getSelectPlayerOrdersWithItemsSQL();
+            case STREAM_ORDERS_WITH_ITEMS: return getStreamOrdersWithItemsSQL();
+            case SELECT_EXPIRED_ORDERS: return getSelectExpiredOrdersSQL();
+            case INSERT_ORDER_ITEM: return getInsertOrderItemSQL();
+            case UPDATE_ORDER_ITEM: return getUpdateOrderItemSQL();
+            case DELETE_ORDER_ITEMS: return getDeleteOrderItemsSQL();
+            case SELECT_ORDER_ITEMS: return getSelectOrderItemsSQL();
+            case INSERT_PLAYER_DATA: return getInsertPlayerDataSQL();
+            case UPDATE_PLAYER_DATA: return getUpdatePlayerDataSQL();
+            case SELECT_PLAYER_DATA: return getSelectPlayerDataSQL();
+            case DELETE_EXPIRED_ORDERS: return getDeleteExpiredOrdersSQL();
+            case DELETE_FINISHED_ORDERS: return getDeleteFinishedOrdersSQL();
+            case DELETE_ORPHANED_ITEMS: return getDeleteOrphanedItemsSQL();
+            case COUNT_ACTIVE_ORDERS: return getCountActiveOrdersSQL();
+            case COUNT_EXPIRED_ORDERS: return getCountExpiredOrdersSQL();
+            default: throw new IllegalArgumentException("Unknown statement: " + key);
+        }
+    }
+    
+    /**
+     * Get the statement cache of a connection. Pooled connections are unwrapped so the
+     * cache follows the physical connection across borrows; statements prepared on it
+     * stay open when the proxy is returned to the pool.
+     */
+    protected StatementCache statements(Connection connection) throws SQLException {
+        Connection physical = connection.isWrapperFor(Connection.class) ? connection.unwrap(Connection.class) : connection;
+        StatementCache cache = statementCaches.get(physical);
+        if (cache == null) {
+            // A new physical connection usually means the pool retired an old one
+            statementCaches.entrySet().removeIf(entry -> {
+                if (entry.getValue().isConnectionClosed()) {
+                    entry.getValue().close();
+                    return true;
+                }
+                return false;
+            });
+            cache = new StatementCache(physical, statementSql, statementCacheHits, statementCacheMisses);
+            statementCaches.put(physical, cache);
+        }
+        return cache;
+    }
+    
+    /**
+     * Number of statement lookups served from a cache
+     */
+    public long getStatementCacheHits() {
+        return statementCacheHits.get();
+    }
+    
+    /**
+     * Number of statement lookups that had to prepare a statement
+     */
+    public long getStatementCacheMisses() {
+        return statementCacheMisses.get();
+    }
+    
+    /**
+     * Fraction of statement lookups served from a cache
      */
-    private void prepareStatement(String name, String sql) throws SQLException {
-        PreparedStatement statement = getConnection().prepareStatement(sql);
-        preparedStatements.put(name, statement);
+    public double getStatementCacheHitRate() {
+        long hits = statementCacheHits.get();
+        long total = hits + statementCacheMisses.get();
+        return total == 0 ? 0.0 : (double) hits / total;
     }
     
     /**
@@ -224,10 +479,14 @@ public abstract class DatabaseManager {
      */
     protected abstract String getInsertOrderSQL();
     protected abstract String getUpdateOrderSQL();
+    protected abstract String getUpdateOrderStatusSQL();
     protected abstract String getDeleteOrderSQL();
     protected abstract String getSelectOrderSQL();
     protected abstract String getSelectPlayerOrdersSQL();
     protected abstract String getSelectAllOrdersSQL();
+    protected abstract String getSelectAllOrdersWithItemsSQL();
+    protected abstract String getSelectPlayerOrdersWithItemsSQL();
+    protected abstract String getStreamOrdersWithItemsSQL();
     protected abstract String getSelectExpiredOrdersSQL();
     protected abstract String getInsertOrderItemSQL();
     protected abstract String getDeleteOrderItemsSQL();
@@ -236,58 +495,57 @@ public abstract class DatabaseManager {
     protected abstract String getUpdatePlayerDataSQL();
     protected abstract String getSelectPlayerDataSQL();
     protected abstract String getDeleteExpiredOrdersSQL();
+    protected abstract String getDeleteFinishedOrdersSQL();
     protected abstract String getDeleteOrphanedItemsSQL();
+    protected abstract String getUpdateOrderItemSQL();
+    protected abstract String getCountActiveOrdersSQL();
+    protected abstract String getCountExpiredOrdersSQL();
     
     /**
-     * Get a direct connection to SQLite database
+     * Borrow a connection from the pool. Callers must close it to return it.
      */
     public Connection getConnection() throws SQLException {
-        // Use the plugin's data folder for the SQLite DB file
-        String dbPath = plugin.getDataFolder().getAbsolutePath() + "/orders.db";
-        return DriverManager.getConnection("jdbc:sqlite:" + dbPath);
-    }
-    
-    /**
-     * Get a prepared statement
-     */
-    protected PreparedStatement getPreparedStatement(String name) throws SQLException {
-        PreparedStatement statement = preparedStatements.get(name);
-        if (statement == null || statement.isClosed()) {
-            throw new SQLException("Prepared statement not available: " + name);
+        HikariDataSource pool = dataSource;
+        if (pool == null || pool.isClosed()) {
+            throw new SQLException("Database connection pool is not initialized");
         }
-        return statement;
+        return pool.getConnection();
     }
     
     /**
      * Save an order to the database
      */
     public CompletableFuture<Boolean> saveOrder(Order order) {
-        return CompletableFuture.supplyAsync(() -> {
-            try (Connection connection = getConnection()) {
-                connection.setAutoCommit(false);
-                
-                try {
-                    // Insert order
-                    insertOrder(connection, order);
-                    
-                    // Insert order items
-                    insertOrderItems(connection, order);
-                    
-                    connection.commit();
-                    
-                    if (plugin.getConfigManager().isDebugMode()) {
-                        plugin.getLogger().info("Order saved successfully: " + order.getId());
-                    }
-                    
-                    return true;
-                } catch (SQLException e) {
-                    connection.rollback();
-                    throw e;
-                }
-            } catch (SQLException e) {
-                plugin.getLogger().log(Level.SEVERE, "Failed to save order: " + order.getId(), e);
-                return false;
+        return submitWrite(connection -> {
+            // A fresh insert writes every column, so nothing is pending afterwards
+            order.clearChanges();
+            
+            // Insert order
+            insertOrder(connection, order);
+            
+            // Insert order items
+            insertOrderItems(connection, order);
+            
+            // Persist material ids and templates first handed out for this order, in the same transaction
+            List<Integer> newMaterials = materialTable.writePending(connection);
+            List<Integer> newTemplates = itemTemplates.writePending(connection);
+            
+            if (plugin.getConfigManager().isDebugMode()) {
+                plugin.getLogger().info("Order saved successfully: " + order.getId());
             }
+            
+            Runnable confirm = () -> {
+                materialTable.confirm(newMaterials);
+                itemTemplates.confirm(newTemplates);
+            };
+            return confirm;
+        }).thenApply(confirm -> {
+            // Only committed rows stop being pending
+            confirm.run();
+            return true;
+        }).exceptionally(e -> {
+            plugin.getLogger().log(Level.SEVERE, "Failed to save order: " + order.getId(), e);
+            return false;
         });
     }
     
@@ -302,24 +560,23 @@ public abstract class DatabaseManager {
     protected abstract void insertOrderItems(Connection connection, Order order) throws SQLException;
     
     /**
-     * Load orders from the database
+     * Load orders from the database. The future fails if they cannot be read, since
+     * an empty result would be taken for an empty order book.
      */
     public CompletableFuture<List<Order>> loadOrders() {
         return CompletableFuture.supplyAsync(() -> {
-            List<Order> orders = new ArrayList<>();
-            
             try (Connection connection = getConnection()) {
-                orders = loadOrdersFromDatabase(connection);
+                List<Order> orders = loadOrdersFromDatabase(connection);
                 
                 if (plugin.getConfigManager().isDebugMode()) {
                     plugin.getLogger().info("Loaded " + orders.size() + " orders from database");
                 }
                 
+                return orders;
             } catch (SQLException e) {
                 plugin.getLogger().log(Level.SEVERE, "Failed to load orders from database", e);
+                throw new CompletionException(e);
             }
-            
-            return orders;
         });
     }
     
@@ -328,36 +585,30 @@ public abstract class DatabaseManager {
      */
     protected abstract List<Order> loadOrdersFromDatabase(Connection connection) throws SQLException;
     
+    /**
+     * Read orders row by row, handing each complete order to the consumer
+     */
+    protected abstract int streamOrdersFromDatabase(Connection connection, Consumer<Order> consumer) throws SQLException;
+    
     /**
      * Delete an order from the database
      */
     public CompletableFuture<Boolean> deleteOrder(String orderId) {
-        return CompletableFuture.supplyAsync(() -> {
-            try (Connection connection = getConnection()) {
-                connection.setAutoCommit(false);
-                
-                try {
-                    // Delete order items first
-                    deleteOrderItemsFromDatabase(connection, orderId);
-                    
-                    // Delete order
-                    deleteOrderFromDatabase(connection, orderId);
-                    
-                    connection.commit();
-                    
-                    if (plugin.getConfigManager().isDebugMode()) {
-                        plugin.getLogger().info("Order deleted successfully: " + orderId);
-                    }
-                    
-                    return true;
-                } catch (SQLException e) {
-                    connection.rollback();
-                    throw e;
-                }
-            } catch (SQLException e) {
-                plugin.getLogger().log(Level.SEVERE, "Failed to delete order: " + orderId, e);
-                return false;
+        return submitWrite(connection -> {
+            // Delete order items first
+            deleteOrderItemsFromDatabase(connection, orderId);
+            
+            // Delete order
+            deleteOrderFromDatabase(connection, orderId);
+            
+            if (plugin.getConfigManager().isDebugMode()) {
+                plugin.getLogger().info("Order deleted successfully: " + orderId);
             }
+            
+            return true;
+        }).exceptionally(e -> {
+            plugin.getLogger().log(Level.SEVERE, "Failed to delete order: " + orderId, e);
+            return false;
         });
     }
     
@@ -374,43 +625,163 @@ public abstract class DatabaseManager {
     /**
      * Update an order in the database
      */
-    public CompletableFuture<Boolean> updateOrder(Order order) {
-        return CompletableFuture.supplyAsync(() -> {
-            try (Connection connection = getConnection()) {
-                connection.setAutoCommit(false);
-                
-                try {
-                    // Update order
-                    updateOrderInDatabase(connection, order);
-                    
-                    // Delete existing items
-                    deleteOrderItemsFromDatabase(connection, String.valueOf(order.getId()));
-                    
-                    // Insert updated items
-                    insertOrderItems(connection, order);
-                    
-                    connection.commit();
-                    
-                    if (plugin.getConfigManager().isDebugMode()) {
-                        plugin.getLogger().info("Order updated successfully: " + order.getId());
+    public CompletableFuture<OrderUpdateResult> updateOrder(Order order) {
+        List<Order> orders = new ArrayList<>(1);
+        orders.add(order);
+        return updateOrders(orders);
+    }
+    
+    /**
+     * Update a batch of orders in a single transaction. Every row is only written if
+     * its version still matches the order's; orders that lost that race are reported
+     * as conflicts and keep their pending changes. Orders whose only change is their
+     * status are grouped by target status and written as one batch per group.
+     */
+    public CompletableFuture<OrderUpdateResult> updateOrders(List<Order> orders) {
+        if (orders.isEmpty()) {
+            return CompletableFuture.completedFuture(OrderUpdateResult.written(new ArrayList<>()));
+        }
+        // Versions and stored counts to fall back to if the transaction rolls back
+        long[] versions = new long[orders.size()];
+        int[] storedDelivered = new int[orders.size()];
+        for (int i = 0; i < versions.length; i++) {
+            versions[i] = orders.get(i).getVersion();
+            storedDelivered[i] = orders.get(i).getStoredDeliveredAmount();
+        }
+        return submitWrite(connection -> {
+            List<Integer> conflicts = new ArrayList<>();
+            Map<OrderStatus, List<Order>> statusOnly = new EnumMap<>(OrderStatus.class);
+            for (Order order : orders) {
+                if (order.drainStatusOnlyChange()) {
+                    statusOnly.computeIfAbsent(order.getStatus(), k -> new ArrayList<>()).add(order);
+                } else if (!writeOrderUpdate(connection, order)) {
+                    conflicts.add(order.getId());
+                }
+            }
+            for (Map.Entry<OrderStatus, List<Order>> entry : statusOnly.entrySet()) {
+                Set<Integer> statusConflicts = new HashSet<>(updateOrderStatuses(connection, entry.getKey(), entry.getValue()));
+                for (Order order : entry.getValue()) {
+                    if (statusConflicts.contains(order.getId())) {
+                        order.restoreChanges(EnumSet.of(OrderField.STATUS), false);
+                        conflicts.add(order.getId());
+                    } else {
+                        order.setVersion(order.getVersion() + 1);
                     }
-                    
-                    return true;
-                } catch (SQLException e) {
-                    connection.rollback();
-                    throw e;
                 }
-            } catch (SQLException e) {
-                plugin.getLogger().log(Level.SEVERE, "Failed to update order: " + order.getId(), e);
+            }
+            
+            if (plugin.getConfigManager().isDebugMode()) {
+                plugin.getLogger().info("Updated " + (orders.size() - conflicts.size()) + " orders in one batch, "
+                        + conflicts.size() + " version conflicts");
+            }
+            
+            return OrderUpdateResult.written(conflicts);
+        }).exceptionally(e -> {
+            plugin.getLogger().log(Level.SEVERE, "Failed to update batch of " + orders.size() + " orders", e);
+            for (int i = 0; i < versions.length; i++) {
+                orders.get(i).restoreWriteState(versions[i], storedDelivered[i]);
+                orders.get(i).markAllChanged();
+            }
+            return OrderUpdateResult.failed();
+        });
+    }
+
+    
+    /**
+     * Write only what changed on an order: the modified columns of its row, new item
+     * rows and modified item rows. A replaced item list falls back to a full rewrite.
+     * Pending changes are drained before writing; if the write fails the caller must
+     * call {@link Order#markAllChanged()} so the next attempt rewrites everything.
+     * The row is written first and only if its version matches, which also bumps it.
+     *
+     * @return false if the version did not match; nothing was written and the drained
+     *         changes are pending again
+     */
+    private boolean writeOrderUpdate(Connection connection, Order order) throws SQLException {
+        if (order.drainItemsReplaced()) {
+            Set<OrderField> changedFields = order.drainChangedFields();
+            if (!updateOrderInDatabase(connection, order)) {
+                order.restoreChanges(changedFields, true);
                 return false;
             }
+            order.markWritten();
+            deleteOrderItemsFromDatabase(connection, String.valueOf(order.getId()));
+            insertOrderItems(connection, order);
+            return true;
+        }
+        
+        // Item-only changes still bump the version so concurrent writers see them
+        Set<OrderField> changedFields = order.drainChangedFields();
+        if (!updateOrderColumns(connection, order, changedFields)) {
+            order.restoreChanges(changedFields, false);
+            return false;
+        }
+        order.markWritten();
+        
+        List<OrderItem> changedItems = new ArrayList<>();
+        for (OrderItem item : order.getItemsSnapshot()) {
+            if (item.getId() <= 0) {
+                item.drainDirty();
+                insertOrderItem(connection, order, item);
+            } else if (item.drainDirty()) {
+                changedItems.add(item);
+            }
+        }
+        if (!changedItems.isEmpty()) {
+            updateOrderItems(connection, changedItems);
+        }
+        return true;
+    }
+    
+    /**
+     * Update every column of an order row if its version matches, bumping the version
+     *
+     * @return false on a version conflict
+     */
+    protected abstract boolean updateOrderInDatabase(Connection connection, Order order) throws SQLException;
+    
+    /**
+     * Update only the given columns of an order row if its version matches, bumping the version
+     *
+     * @return false on a version conflict
+     */
+    protected abstract boolean updateOrderColumns(Connection connection, Order order, Set<OrderField> fields) throws SQLException;
+    
+    /**
+     * Set the status of many orders at once, each only if its version matches
+     *
+     * @return the ids of the orders that had a version conflict
+     */
+    protected abstract List<Integer> updateOrderStatuses(Connection connection, OrderStatus status, List<Order> orders) throws SQLException;
+    
+    /**
+     * Load the current row of one order, without its items
+     */
+    public CompletableFuture<Order> loadOrder(int orderId) {
+        return CompletableFuture.supplyAsync(() -> {
+            try (Connection connection = getConnection()) {
+                return loadOrderFromDatabase(connection, orderId);
+            } catch (SQLException e) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to load order: " + orderId, e);
+                return null;
+            }
         });
     }
     
     /**
-     * Update order in database
+     * Load one order row, or null if it does not exist
+     */
+    protected abstract Order loadOrderFromDatabase(Connection connection, int orderId) throws SQLException;
+    
+    /**
+     * Insert a single order item and assign its generated id
      */
-    protected abstract void updateOrderInDatabase(Connection connection, Order order) throws SQLException;
+    protected abstract void insertOrderItem(Connection connection, Order order, OrderItem item) throws SQLException;
+    
+    /**
+     * Update existing order item rows by id
+     */
+    protected abstract void updateOrderItems(Connection connection, List<OrderItem> items) throws SQLException;
     
     /**
      * Get orders for a specific player
@@ -443,40 +814,61 @@ public abstract class DatabaseManager {
      * Clean up expired orders
      */
     public CompletableFuture<Integer> cleanupExpiredOrders() {
-        return CompletableFuture.supplyAsync(() -> {
-            try (Connection connection = getConnection()) {
-                connection.setAutoCommit(false);
-                
-                try {
-                    // Get expired orders first
-                    List<String> expiredOrderIds = getExpiredOrderIds(connection);
-                    
-                    // Delete expired order items
-                    int deletedItems = deleteExpiredOrderItems(connection, expiredOrderIds);
-                    
-                    // Delete expired orders
-                    int deletedOrders = deleteExpiredOrdersFromDatabase(connection);
-                    
-                    // Delete orphaned items
-                    int orphanedItems = deleteOrphanedItems(connection);
-                    
-                    connection.commit();
-                    
-                    plugin.getLogger().info("Cleanup completed: " + deletedOrders + " orders, " + 
-                                          deletedItems + " items, " + orphanedItems + " orphaned items");
-                    
-                    return deletedOrders;
-                } catch (SQLException e) {
-                    connection.rollback();
-                    throw e;
-                }
-            } catch (SQLException e) {
-                plugin.getLogger().log(Level.SEVERE, "Failed to cleanup expired orders", e);
-                return 0;
-            }
+        return submitWrite(connection -> {
+            // Get expired orders first
+            List<String> expiredOrderIds = getExpiredOrderIds(connection);
+            
+            // Delete expired order items
+            int deletedItems = deleteExpiredOrderItems(connection, expiredOrderIds);
+            
+            // Delete expired orders
+            int deletedOrders = deleteExpiredOrdersFromDatabase(connection);
+            
+            // Delete orphaned items
+            int orphanedItems = deleteOrphanedItems(connection);
+            
+            plugin.getLogger().info("Cleanup completed: " + deletedOrders + " orders, " + 
+                                  deletedItems + " items, " + orphanedItems + " orphaned items");
+            
+            return deletedOrders;
+        }).exceptionally(e -> {
+            plugin.getLogger().log(Level.SEVERE, "Failed to cleanup expired orders", e);
+            return 0;
         });
     }
     
+    /**
+     * Delete the given orders, and any other finished order created before the cutoff
+     * that is still in the database, along with their items. Runs as one write.
+     *
+     * @return the number of order rows actually deleted, or -1 if the delete failed
+     */
+    public CompletableFuture<Integer> deleteFinishedOrders(List<Integer> orderIds, long cutoff) {
+        return submitWrite(connection -> {
+            int deletedOrders = deleteOrdersFromDatabase(connection, orderIds);
+            deletedOrders += deleteFinishedOrdersFromDatabase(connection, cutoff);
+            deleteOrphanedItems(connection);
+            return deletedOrders;
+        }).exceptionally(e -> {
+            plugin.getLogger().log(Level.SEVERE, "Failed to delete finished orders", e);
+            return -1;
+        });
+    }
+    
+    /**
+     * Delete orders and their items by ID
+     *
+     * @return the number of order rows deleted
+     */
+    protected abstract int deleteOrdersFromDatabase(Connection connection, List<Integer> orderIds) throws SQLException;
+    
+    /**
+     * Delete completed, cancelled and expired orders created before the cutoff
+     *
+     * @return the number of order rows deleted
+     */
+    protected abstract int deleteFinishedOrdersFromDatabase(Connection connection, long cutoff) throws SQLException;
+    
     /**
      * Get expired order IDs
      */
@@ -541,6 +933,11 @@ public abstract class DatabaseManager {
                 // Get expired orders count
                 stats.expiredOrders = getExpiredOrdersCount(connection);
                 
+                // Statement cache usage
+                stats.statementCacheHits = getStatementCacheHits();
+                stats.statementCacheMisses = getStatementCacheMisses();
+                stats.cachedStatements = statementCaches.values().stream().mapToInt(StatementCache::size).sum();
+                
                 return stats;
             } catch (SQLException e) {
                 plugin.getLogger().log(Level.WARNING, "Failed to get database statistics", e);
@@ -580,11 +977,21 @@ public abstract class DatabaseManager {
         public int totalPlayers = 0;
         public int activeOrders = 0;
         public int expiredOrders = 0;
+        public long statementCacheHits = 0;
+        public long statementCacheMisses = 0;
+        public int cachedStatements = 0;
+        
+        public double getStatementCacheHitRate() {
+            long total = statementCacheHits + statementCacheMisses;
+            return total == 0 ? 0.0 : (double) statementCacheHits / total;
+        }
         
         @Override
         public String toString() {
-            return String.format("DatabaseStats{totalOrders=%d, totalOrderItems=%d, totalPlayers=%d, activeOrders=%d, expiredOrders=%d}",
-                    totalOrders, totalOrderItems, totalPlayers, activeOrders, expiredOrders);
+            return String.format("DatabaseStats{totalOrders=%d, totalOrderItems=%d, totalPlayers=%d, activeOrders=%d, expiredOrders=%d, " +
+                            "statementCacheHits=%d, statementCacheMisses=%d, cachedStatements=%d}",
+                    totalOrders, totalOrderItems, totalPlayers, activeOrders, expiredOrders,
+                    statementCacheHits, statementCacheMisses, cachedStatements);
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,231 @@
+package com.donutxorders.database;
+
+import com.donutxorders.core.DonutxOrders;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Single writer thread that owns the only write connection to the SQLite file.
+ * Queued write operations are committed in groups: a group is closed once it holds
+ * batch-size operations or once batch-delay milliseconds have passed since its first
+ * operation, whichever comes first. Each operation runs inside its own savepoint so a
+ * failing operation is rolled back without affecting the rest of the group.
+ */
+public class DatabaseWriter {
+
+    /**
+     * A unit of work executed on the writer connection
+     */
+    @FunctionalInterface
+    public interface WriteOperation<T> {
+        T execute(Connection connection) throws SQLException;
+    }
+
+    private static final class PendingWrite<T> {
+        final WriteOperation<T> operation;
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        T result;
+
+        PendingWrite(WriteOperation<T> operation) {
+            this.operation = operation;
+        }
+
+        void execute(Connection connection) throws SQLException {
+            result = operation.execute(connection);
+        }
+
+        void complete() {
+            future.complete(result);
+        }
+    }
+
+    private final DonutxOrders plugin;
+    private final Connection connection;
+    private final int batchSize;
+    private final long batchDelayNanos;
+    private final BlockingQueue<PendingWrite<?>> queue = new LinkedBlockingQueue<>();
+    private final Thread thread;
+    private volatile boolean running;
+
+    public DatabaseWriter(DonutxOrders plugin, Connection connection, int batchSize, long batchDelayMillis) {
+        this.plugin = plugin;
+        this.connection = connection;
+        this.batchSize = Math.max(1, batchSize);
+        this.batchDelayNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0L, batchDelayMillis));
+        this.thread = new Thread(this::runLoop, "DonutxOrders-DatabaseWriter");
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Start the writer thread
+     */
+    public void start() throws SQLException {
+        connection.setAutoCommit(false);
+        running = true;
+        thread.start();
+    }
+
+    /**
+     * Queue a write operation. The returned future completes once the group
+     * containing the operation has been committed.
+     */
+    public <T> CompletableFuture<T> submit(WriteOperation<T> operation) {
+        PendingWrite<T> pending = new PendingWrite<>(operation);
+        if (!running) {
+            pending.future.completeExceptionally(new SQLException("Database writer is not running"));
+            return pending.future;
+        }
+        queue.add(pending);
+        // A shutdown that started after the check above may already have stopped the
+        // writer and drained the queue; take the write back out and fail it. If it is
+        // gone, the writer thread or the shutdown drain owns it and will complete it.
+        if (!running && queue.remove(pending)) {
+            pending.future.completeExceptionally(new SQLException("Database writer was shut down"));
+        }
+        return pending.future;
+    }
+
+    /**
+     * Number of operations waiting for the writer thread
+     */
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    /**
+     * Stop accepting writes, flush everything already queued and close the connection.
+     * A writer that does not finish in time is interrupted; its connection is only
+     * closed once the thread has stopped, never under a commit in progress.
+     */
+    public void shutdown() {
+        running = false;
+        boolean interrupted = false;
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(30));
+            if (thread.isAlive()) {
+                plugin.getLogger().warning("Database writer did not flush within 30 seconds, interrupting it");
+                thread.interrupt();
+                thread.join(TimeUnit.SECONDS.toMillis(5));
+            }
+        } catch (InterruptedException e) {
+            interrupted = true;
+        }
+
+        // Anything still queued here could not be written
+        failQueued("Database writer was shut down");
+
+        if (thread.isAlive()) {
+            plugin.getLogger().severe("Database writer is still running; leaving its connection open");
+        } else {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                plugin.getLogger().log(Level.WARNING, "Error while closing database writer connection", e);
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runLoop() {
+        List<PendingWrite<?>> group = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingWrite<?> first = queue.poll(250, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                group.add(first);
+
+                // Gather more operations until the group is full or the delay has passed
+                long deadline = System.nanoTime() + batchDelayNanos;
+                while (group.size() < batchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    PendingWrite<?> next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    group.add(next);
+                }
+
+                commitGroup(group);
+            } catch (InterruptedException e) {
+                // Nothing gathered or still queued will be written; fail it all and stop
+                running = false;
+                for (PendingWrite<?> pending : group) {
+                    pending.future.completeExceptionally(new SQLException("Database writer was interrupted"));
+                }
+                failQueued("Database writer was interrupted");
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                group.clear();
+            }
+        }
+    }
+
+    private void failQueued(String reason) {
+        PendingWrite<?> pending;
+        while ((pending = queue.poll()) != null) {
+            pending.future.completeExceptionally(new SQLException(reason));
+        }
+    }
+
+    private void commitGroup(List<PendingWrite<?>> group) {
+        List<PendingWrite<?>> succeeded = new ArrayList<>(group.size());
+        for (PendingWrite<?> pending : group) {
+            Savepoint savepoint = null;
+            try {
+                savepoint = connection.setSavepoint();
+                pending.execute(connection);
+                connection.releaseSavepoint(savepoint);
+                succeeded.add(pending);
+            } catch (Exception e) {
+                rollbackTo(savepoint);
+                pending.future.completeExceptionally(e);
+            }
+        }
+
+        try {
+            connection.commit();
+            for (PendingWrite<?> pending : succeeded) {
+                pending.complete();
+            }
+            if (plugin.getConfigManager().isDebugMode()) {
+                plugin.getLogger().info("Committed " + succeeded.size() + " database writes in one transaction");
+            }
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.SEVERE, "Failed to commit database write group", e);
+            try {
+                connection.rollback();
+            } catch (SQLException rollbackError) {
+                plugin.getLogger().log(Level.WARNING, "Failed to roll back database write group", rollbackError);
+            }
+            for (PendingWrite<?> pending : succeeded) {
+                pending.future.completeExceptionally(e);
+            }
+        }
+    }
+
+    private void rollbackTo(Savepoint savepoint) {
+        if (savepoint == null) {
+            return;
+        }
+        try {
+            connection.rollback(savepoint);
+            connection.releaseSavepoint(savepoint);
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.WARNING, "Failed to roll back database write", e);
+        }
+    }
+}
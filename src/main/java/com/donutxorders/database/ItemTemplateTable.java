@@ -0,0 +1,160 @@
+package com.donutxorders.database;
+
+import com.donutxorders.models.ItemTemplate;
+import com.donutxorders.utils.ItemCodec;
+import org.bukkit.inventory.ItemStack;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Intern pool of item templates keyed by the content hash of their canonical
+ * encoding, backed by the item template table. Like {@link MaterialTable}, new
+ * templates get their id in memory and are written by the next order insert.
+ */
+public class ItemTemplateTable {
+
+    private final String tableName;
+    private final MaterialTable materials;
+    private final Logger logger;
+    private final Map<Long, ItemTemplate> byHash = new ConcurrentHashMap<>();
+    private final Map<Integer, ItemTemplate> byId = new ConcurrentHashMap<>();
+    private final Map<Integer, ItemTemplate> pending = new ConcurrentHashMap<>();
+    private final AtomicInteger nextId = new AtomicInteger(1);
+
+    public ItemTemplateTable(String tableName, MaterialTable materials, Logger logger) {
+        this.tableName = tableName;
+        this.materials = materials;
+        this.logger = logger;
+    }
+
+    /**
+     * Load all stored templates. Must run after the material table has loaded.
+     */
+    public void load(Connection connection) throws SQLException {
+        int maxId = 0;
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT id, hash, item_data FROM " + tableName)) {
+            while (resultSet.next()) {
+                int id = resultSet.getInt("id");
+                maxId = Math.max(maxId, id);
+                byte[] data = resultSet.getBytes("item_data");
+                try {
+                    ItemTemplate template = new ItemTemplate(id, resultSet.getLong("hash"), data,
+                            ItemCodec.decode(ByteBuffer.wrap(data), materials));
+                    byHash.put(template.getHash(), template);
+                    byId.put(id, template);
+                } catch (RuntimeException e) {
+                    logger.log(Level.WARNING, "Skipping unreadable item template " + id, e);
+                }
+            }
+        }
+        nextId.set(maxId + 1);
+    }
+
+    /**
+     * Get the shared template for an item, creating it if this variant is new
+     */
+    public ItemTemplate intern(ItemStack item) {
+        byte[] data = canonicalData(item);
+        long hash = hash(data);
+        ItemTemplate existing = byHash.get(hash);
+        if (existing == null) {
+            existing = byHash.computeIfAbsent(hash, key -> {
+                ItemTemplate created = new ItemTemplate(nextId.getAndIncrement(), key, data,
+                        ItemCodec.decode(ByteBuffer.wrap(data), materials));
+                byId.put(created.getId(), created);
+                pending.put(created.getId(), created);
+                return created;
+            });
+        }
+        if (!existing.hasData(data)) {
+            // Hash collision: keep the item out of the pool so it is stored inline
+            return new ItemTemplate(0, hash, data, ItemCodec.decode(ByteBuffer.wrap(data), materials));
+        }
+        return existing;
+    }
+
+    /**
+     * Find the template for an item without creating one
+     */
+    public ItemTemplate find(ItemStack item) {
+        byte[] data = canonicalData(item);
+        ItemTemplate template = byHash.get(hash(data));
+        return template != null && template.hasData(data) ? template : null;
+    }
+
+    public ItemTemplate get(int id) {
+        return byId.get(id);
+    }
+
+    /**
+     * Write every pending template inside the current write transaction
+     *
+     * @return the ids written, to be passed to {@link #confirm(List)} once committed
+     */
+    public List<Integer> writePending(Connection connection) throws SQLException {
+        if (pending.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Integer> written = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(
+                "INSERT OR IGNORE INTO " + tableName + " (id, hash, material, item_data) VALUES (?, ?, ?, ?)")) {
+            for (ItemTemplate template : pending.values()) {
+                statement.setInt(1, template.getId());
+                statement.setLong(2, template.getHash());
+                statement.setString(3, template.getMaterial().name());
+                statement.setBytes(4, template.getData());
+                statement.addBatch();
+                written.add(template.getId());
+            }
+            statement.executeBatch();
+        }
+        return written;
+    }
+
+    /**
+     * Mark templates as persisted after their write has committed
+     */
+    public void confirm(List<Integer> written) {
+        for (Integer id : written) {
+            pending.remove(id);
+        }
+    }
+
+    public int size() {
+        return byId.size();
+    }
+
+    // Encoding of the item at amount 1, so stacks of any size share a template
+    private byte[] canonicalData(ItemStack item) {
+        ItemStack single = item;
+        if (item.getAmount() != 1) {
+            single = item.clone();
+            single.setAmount(1);
+        }
+        return ItemCodec.encode(single, materials);
+    }
+
+    private static long hash(byte[] data) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(data);
+            return ByteBuffer.wrap(digest).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.donutxorders.database;
+
+import com.donutxorders.utils.ItemCodec;
+import org.bukkit.Material;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Persisted material name table giving every material a small id that stays the
+ * same across server versions. New ids are handed out in memory and written by
+ * the next order insert; they stay pending until that write has committed.
+ */
+public class MaterialTable implements ItemCodec.MaterialTable {
+
+    private final String tableName;
+    private final Map<Material, Integer> ids = new ConcurrentHashMap<>();
+    private final Map<Integer, Material> materials = new ConcurrentHashMap<>();
+    private final Map<Integer, String> pending = new ConcurrentHashMap<>();
+    private final AtomicInteger nextId = new AtomicInteger(1);
+
+    public MaterialTable(String tableName) {
+        this.tableName = tableName;
+    }
+
+    /**
+     * Load all known materials. Names that no longer resolve on this server are
+     * skipped but keep their id reserved.
+     */
+    public void load(Connection connection) throws SQLException {
+        int maxId = 0;
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT id, name FROM " + tableName)) {
+            while (resultSet.next()) {
+                int id = resultSet.getInt("id");
+                maxId = Math.max(maxId, id);
+                Material material = Material.matchMaterial(resultSet.getString("name"));
+                if (material != null) {
+                    ids.put(material, id);
+                    materials.put(id, material);
+                }
+            }
+        }
+        nextId.set(maxId + 1);
+    }
+
+    @Override
+    public int idOf(Material material) {
+        Integer id = ids.get(material);
+        if (id != null) {
+            return id;
+        }
+        return ids.computeIfAbsent(material, key -> {
+            int assigned = nextId.getAndIncrement();
+            materials.put(assigned, key);
+            pending.put(assigned, key.name());
+            return assigned;
+        });
+    }
+
+    @Override
+    public Material materialOf(int id) {
+        return materials.get(id);
+    }
+
+    /**
+     * Write every pending material inside the current write transaction
+     *
+     * @return the ids written, to be passed to {@link #confirm(List)} once committed
+     */
+    public List<Integer> writePending(Connection connection) throws SQLException {
+        if (pending.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Integer> written = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(
+                "INSERT OR IGNORE INTO " + tableName + " (id, name) VALUES (?, ?)")) {
+            for (Map.Entry<Integer, String> entry : pending.entrySet()) {
+                statement.setInt(1, entry.getKey());
+                statement.setString(2, entry.getValue());
+                statement.addBatch();
+                written.add(entry.getKey());
+            }
+            statement.executeBatch();
+        }
+        return written;
+    }
+
+    /**
+     * Mark materials as persisted after their write has committed
+     */
+    public void confirm(List<Integer> written) {
+        for (Integer id : written) {
+            pending.remove(id);
+        }
+    }
+
+    public int size() {
+        return ids.size();
+    }
+}
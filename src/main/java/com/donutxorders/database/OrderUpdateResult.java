@@ -0,0 +1,48 @@
+package com.donutxorders.database;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of writing order updates. A write can commit and still report conflicts:
+ * orders whose row version no longer matched were skipped and keep their pending
+ * changes, so the caller can refresh them and retry.
+ */
+public final class OrderUpdateResult {
+
+    private static final OrderUpdateResult FAILED = new OrderUpdateResult(false, Collections.emptyList());
+
+    private final boolean success;
+    private final List<Integer> conflicts;
+
+    private OrderUpdateResult(boolean success, List<Integer> conflicts) {
+        this.success = success;
+        this.conflicts = conflicts;
+    }
+
+    /**
+     * The write committed; the given orders were skipped because of a version conflict
+     */
+    public static OrderUpdateResult written(List<Integer> conflicts) {
+        return new OrderUpdateResult(true, Collections.unmodifiableList(conflicts));
+    }
+
+    /**
+     * The write failed and nothing was committed
+     */
+    public static OrderUpdateResult failed() {
+        return FAILED;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public boolean hasConflicts() {
+        return !conflicts.isEmpty();
+    }
+
+    public List<Integer> getConflicts() {
+        return conflicts;
+    }
+}
@@ -1,53 +1,53 @@
 package com.donutxorders.database;
 
+import com.donutxorders.models.ItemTemplate;
 import com.donutxorders.models.Order;
+import com.donutxorders.models.OrderField;
 import com.donutxorders.models.OrderItem;
 import com.donutxorders.models.OrderStatus;
 
 import com.donutxorders.core.DonutxOrders;
 import com.donutxorders.database.DatabaseManager;
+import com.donutxorders.utils.ItemCodec;
 
 import java.io.File;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 
 public class SQLiteDatabase extends DatabaseManager {
 
     @Override
     public List<Order> getAllOrders() {
-        List<Order> orders = new ArrayList<>();
-        try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + dbFile.getAbsolutePath());
-             PreparedStatement statement = connection.prepareStatement(getSelectAllOrdersSQL());
-             ResultSet rs = statement.executeQuery()) {
-            while (rs.next()) {
-                Order order = Order.fromResultSet(rs, null);
-                orders.add(order);
-            }
+        try (Connection connection = getConnection()) {
+            return loadOrdersFromDatabase(connection);
         } catch (Exception e) {
             e.printStackTrace();
+            return new ArrayList<>();
         }
-        return orders;
     }
 
     @Override
     public boolean updateOrderSync(Order order) {
-        try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + dbFile.getAbsolutePath());
-             PreparedStatement statement = connection.prepareStatement(getUpdateOrderSQL())) {
-            statement.setString(1, order.getStatus().name());
-            if (order.getExpiresAt() > 0) {
-                statement.setLong(2, order.getExpiresAt());
-            } else {
-                statement.setNull(2, java.sql.Types.BIGINT);
-            }
-            statement.setDouble(3, order.getFee());
-            statement.setDouble(4, order.getTotalPrice());
-            statement.setString(5, order.getDescription());
-            statement.setString(6, String.valueOf(order.getId()));
-            int rows = statement.executeUpdate();
-            return rows > 0;
+        try {
+            return submitWrite(connection -> {
+                PreparedStatement statement = statements(connection).get(SqlStatement.UPDATE_ORDER);
+                Set<OrderField> changedFields = order.drainChangedFields();
+                bindOrderUpdate(statement, order);
+                int rows = statement.executeUpdate();
+                if (rows > 0) {
+                    order.markWritten();
+                } else {
+                    order.restoreChanges(changedFields, false);
+                }
+                return rows > 0;
+            }).join();
         } catch (Exception e) {
             e.printStackTrace();
             return false;
@@ -56,11 +56,13 @@ public class SQLiteDatabase extends DatabaseManager {
 
     @Override
     public boolean deleteOrderSync(String orderId) {
-        try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + dbFile.getAbsolutePath());
-             PreparedStatement statement = connection.prepareStatement(getDeleteOrderSQL())) {
-            statement.setString(1, orderId);
-            int rows = statement.executeUpdate();
-            return rows > 0;
+        try {
+            return submitWrite(connection -> {
+                PreparedStatement statement = statements(connection).get(SqlStatement.DELETE_ORDER);
+                statement.setString(1, orderId);
+                int rows = statement.executeUpdate();
+                return rows > 0;
+            }).join();
         } catch (Exception e) {
             e.printStackTrace();
             return false;
@@ -69,6 +71,16 @@ public class SQLiteDatabase extends DatabaseManager {
 
     private File dbFile;
 
+    // Shared by the partial index and the queries it serves so SQLite can match them
+    private static final String ACTIVE_STATUS_PREDICATE = "status IN ('PENDING', 'IN_PROGRESS')";
+
+    // Column order of getUpdateOrderSQL()
+    private static final OrderField[] FULL_UPDATE_FIELDS = {
+            OrderField.STATUS, OrderField.EXPIRES_AT, OrderField.FEE, OrderField.TOTAL_PRICE, OrderField.DESCRIPTION,
+            OrderField.QUANTITY, OrderField.PRICE_PER_ITEM, OrderField.DELIVERED_AMOUNT
+    };
+
+
     public SQLiteDatabase(DonutxOrders plugin) {
         super(plugin);
         // Use the new databaseFilePath from DatabaseManager
@@ -129,15 +141,96 @@ public class SQLiteDatabase extends DatabaseManager {
                 ")";
     }
 
+    @Override
+    protected List<SchemaMigration> getMigrations() {
+        List<SchemaMigration> migrations = new ArrayList<>();
+        migrations.add(new SchemaMigration(1, "Add hot-path indexes",
+                "CREATE INDEX IF NOT EXISTS idx_donutx_orders_player_created ON " + ORDERS_TABLE + " (player_uuid, created_at)",
+                "CREATE INDEX IF NOT EXISTS idx_donutx_orders_status_created ON " + ORDERS_TABLE + " (status, created_at)",
+                "CREATE INDEX IF NOT EXISTS idx_donutx_orders_created ON " + ORDERS_TABLE + " (created_at)",
+                "CREATE INDEX IF NOT EXISTS idx_donutx_order_items_order ON " + ORDER_ITEMS_TABLE + " (order_id)"));
+        migrations.add(new SchemaMigration(2, "Add partial indexes for active and expiring orders",
+                "CREATE INDEX IF NOT EXISTS idx_donutx_orders_active ON " + ORDERS_TABLE + " (status, expires_at) WHERE " + ACTIVE_STATUS_PREDICATE,
+                "CREATE INDEX IF NOT EXISTS idx_donutx_orders_expires ON " + ORDERS_TABLE + " (expires_at) WHERE expires_at IS NOT NULL"));
+        migrations.add(new SchemaMigration(3, "Persist order quantity, price and delivery progress",
+                "ALTER TABLE " + ORDERS_TABLE + " ADD COLUMN quantity INTEGER NOT NULL DEFAULT 0",
+                "ALTER TABLE " + ORDERS_TABLE + " ADD COLUMN price_per_item REAL NOT NULL DEFAULT 0.0",
+                "ALTER TABLE " + ORDERS_TABLE + " ADD COLUMN delivered_amount INTEGER NOT NULL DEFAULT 0"));
+        migrations.add(new SchemaMigration(4, "Add material column and keyset pagination indexes",
+                "ALTER TABLE " + ORDERS_TABLE + " ADD COLUMN material TEXT",
+                "CREATE INDEX IF NOT EXISTS idx_donutx_orders_material_created ON " + ORDERS_TABLE + " (material, created_at)",
+                "CREATE INDEX IF NOT EXISTS idx_donutx_orders_price ON " + ORDERS_TABLE + " (price_per_item)",
+                "CREATE INDEX IF NOT EXISTS idx_donutx_orders_quantity ON " + ORDERS_TABLE + " (quantity)"));
+        migrations.add(new SchemaMigration(5, "Store order items in the compact binary codec",
+                "ALTER TABLE " + ORDERS_TABLE + " ADD COLUMN item_data BLOB",
+                "CREATE TABLE IF NOT EXISTS " + MATERIALS_TABLE + " (id INTEGER PRIMARY KEY, name TEXT NOT NULL UNIQUE)"));
+        migrations.add(new SchemaMigration(6, "Deduplicate order items into interned templates",
+                "CREATE TABLE IF NOT EXISTS " + ITEM_TEMPLATES_TABLE + " (id INTEGER PRIMARY KEY, hash INTEGER NOT NULL UNIQUE, " +
+                        "material TEXT NOT NULL, item_data BLOB NOT NULL)",
+                "ALTER TABLE " + ORDERS_TABLE + " ADD COLUMN template_id INTEGER REFERENCES " + ITEM_TEMPLATES_TABLE + "(id)"));
+        migrations.add(new SchemaMigration(7, "Add row version for optimistic concurrency",
+                "ALTER TABLE " + ORDERS_TABLE + " ADD COLUMN version INTEGER NOT NULL DEFAULT 0"));
+        // Pages are served from the order book, so nothing reads through these any more
+        migrations.add(new SchemaMigration(8, "Drop unused keyset pagination indexes",
+                "DROP INDEX IF EXISTS idx_donutx_orders_material_created",
+                "DROP INDEX IF EXISTS idx_donutx_orders_price",
+                "DROP INDEX IF EXISTS idx_donutx_orders_quantity"));
+        return migrations;
+    }
+
+    @Override
+    protected Map<String, String> getHotQueries() {
+        Map<String, String> queries = new LinkedHashMap<>();
+        queries.put("SELECT_ORDER", getSelectOrderSQL());
+        queries.put("SELECT_PLAYER_ORDERS", getSelectPlayerOrdersSQL());
+        queries.put("SELECT_PLAYER_ORDERS_WITH_ITEMS", getSelectPlayerOrdersWithItemsSQL());
+        queries.put("SELECT_EXPIRED_ORDERS", getSelectExpiredOrdersSQL());
+        queries.put("SELECT_ORDER_ITEMS", getSelectOrderItemsSQL());
+        queries.put("DELETE_ORDER_ITEMS", getDeleteOrderItemsSQL());
+        queries.put("DELETE_EXPIRED_ORDERS", getDeleteExpiredOrdersSQL());
+        queries.put("COUNT_ACTIVE_ORDERS", getCountActiveOrdersSQL());
+        queries.put("COUNT_EXPIRED_ORDERS", getCountExpiredOrdersSQL());
+        return queries;
+    }
+
     @Override
     protected String getInsertOrderSQL() {
-        return "INSERT INTO " + ORDERS_TABLE + " (id, player_uuid, status, created_at, expires_at, world, x, y, z, fee, total_price, description) " +
-                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        return "INSERT INTO " + ORDERS_TABLE + " (id, player_uuid, status, created_at, expires_at, world, x, y, z, fee, total_price, description, " +
+                "quantity, price_per_item, delivered_amount, material, item_data, template_id) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
     }
 
     @Override
     protected String getUpdateOrderSQL() {
-        return "UPDATE " + ORDERS_TABLE + " SET status = ?, expires_at = ?, fee = ?, total_price = ?, description = ? WHERE id = ?";
+        return "UPDATE " + ORDERS_TABLE + " SET status = ?, expires_at = ?, fee = ?, total_price = ?, description = ?, " +
+                "quantity = ?, price_per_item = ?, delivered_amount = ?, version = version + 1 WHERE id = ? AND version = ?";
+    }
+
+    @Override
+    protected String getUpdateOrderStatusSQL() {
+        return "UPDATE " + ORDERS_TABLE + " SET status = ?, version = version + 1 WHERE id = ? AND version = ?";
+    }
+
+    @Override
+    protected String getUpdateOrderItemSQL() {
+        return "UPDATE " + ORDER_ITEMS_TABLE + " SET amount = ?, deliverer_uuid = ?, delivered_at = ?, delivered_amount = ? WHERE id = ?";
+    }
+
+    /**
+     * Column name for a tracked order field
+     */
+    private String getOrderColumn(OrderField field) {
+        switch (field) {
+            case STATUS: return "status";
+            case EXPIRES_AT: return "expires_at";
+            case FEE: return "fee";
+            case TOTAL_PRICE: return "total_price";
+            case DESCRIPTION: return "description";
+            case QUANTITY: return "quantity";
+            case PRICE_PER_ITEM: return "price_per_item";
+            case DELIVERED_AMOUNT: return "delivered_amount";
+            default: throw new IllegalArgumentException("Unknown order field: " + field);
+        }
     }
 
     @Override
@@ -160,6 +253,37 @@ public class SQLiteDatabase extends DatabaseManager {
         return "SELECT * FROM " + ORDERS_TABLE + " ORDER BY created_at DESC";
     }
 
+    @Override
+    protected String getSelectAllOrdersWithItemsSQL() {
+        return getSelectOrdersWithItemsSQL("", "o.created_at DESC, o.id, i.id");
+    }
+
+    @Override
+    protected String getSelectPlayerOrdersWithItemsSQL() {
+        return getSelectOrdersWithItemsSQL("WHERE o.player_uuid = ? ", "o.created_at DESC, o.id, i.id");
+    }
+
+    /**
+     * Ordered by primary key so SQLite walks the indexes instead of sorting the whole table
+     */
+    @Override
+    protected String getStreamOrdersWithItemsSQL() {
+        return getSelectOrdersWithItemsSQL("", "o.id, i.id");
+    }
+
+    /**
+     * Orders joined with their items. Rows are ordered so that all items of an
+     * order are adjacent, which lets the reader group them in a single pass.
+     * Item columns that share a name with an order column are aliased.
+     */
+    private String getSelectOrdersWithItemsSQL(String where, String orderBy) {
+        return "SELECT o.*, i.id AS item_id, i.item_type, i.amount, i.price_per_item AS item_price_per_item, i.meta, " +
+                "i.deliverer_uuid, i.delivered_at, i.delivered_amount AS item_delivered_amount " +
+                "FROM " + ORDERS_TABLE + " o LEFT JOIN " + ORDER_ITEMS_TABLE + " i ON i.order_id = o.id " +
+                where +
+                "ORDER BY " + orderBy;
+    }
+
     @Override
     protected String getSelectExpiredOrdersSQL() {
         return "SELECT * FROM " + ORDERS_TABLE + " WHERE expires_at IS NOT NULL AND expires_at < ? AND status != 'EXPIRED'";
@@ -203,6 +327,11 @@ public class SQLiteDatabase extends DatabaseManager {
         return "DELETE FROM " + ORDERS_TABLE + " WHERE expires_at IS NOT NULL AND expires_at < ?";
     }
 
+    @Override
+    protected String getDeleteFinishedOrdersSQL() {
+        return "DELETE FROM " + ORDERS_TABLE + " WHERE status IN ('COMPLETED', 'CANCELLED', 'EXPIRED') AND created_at < ?";
+    }
+
     @Override
     protected String getDeleteOrphanedItemsSQL() {
         return "DELETE FROM " + ORDER_ITEMS_TABLE + " WHERE order_id NOT IN (SELECT id FROM " + ORDERS_TABLE + ")";
@@ -210,133 +339,264 @@ public class SQLiteDatabase extends DatabaseManager {
 
     @Override
     protected void insertOrder(Connection connection, Order order) throws SQLException {
-        try (PreparedStatement statement = connection.prepareStatement(getInsertOrderSQL())) {
-            statement.setInt(1, order.getId());
-            statement.setString(2, order.getPlayerUuid().toString());
-            statement.setString(3, order.getStatus().name());
-            statement.setLong(4, order.getCreatedAt());
-            if (order.getExpiresAt() > 0) {
-                statement.setLong(5, order.getExpiresAt());
-            } else {
-                statement.setNull(5, Types.INTEGER);
-            }
-            statement.setString(6, order.getWorld());
-            statement.setDouble(7, order.getX());
-            statement.setDouble(8, order.getY());
-            statement.setDouble(9, order.getZ());
-            statement.setDouble(10, order.getFee());
-            statement.setDouble(11, order.getTotalPrice());
-            statement.setString(12, order.getDescription());
-            statement.executeUpdate();
+        PreparedStatement statement = statements(connection).get(SqlStatement.INSERT_ORDER);
+        statement.setInt(1, order.getId());
+        statement.setString(2, order.getPlayerUuid().toString());
+        statement.setString(3, order.getStatus().name());
+        statement.setLong(4, order.getCreatedAt());
+        if (order.getExpiresAt() > 0) {
+            statement.setLong(5, order.getExpiresAt());
+        } else {
+            statement.setNull(5, Types.INTEGER);
         }
+        statement.setString(6, order.getWorld());
+        statement.setDouble(7, order.getX());
+        statement.setDouble(8, order.getY());
+        statement.setDouble(9, order.getZ());
+        statement.setDouble(10, order.getFee());
+        statement.setDouble(11, order.getTotalPrice());
+        statement.setString(12, order.getDescription());
+        statement.setInt(13, order.getQuantity());
+        statement.setDouble(14, order.getPricePerItem());
+        statement.setInt(15, order.getDeliveredAmount());
+        ItemTemplate template = order.getItemTemplate();
+        if (template != null && template.getId() > 0) {
+            // Interned items are stored once in the template table
+            statement.setString(16, template.getMaterial().name());
+            statement.setNull(17, Types.BLOB);
+            statement.setInt(18, template.getId());
+        } else if (order.getItemStack() != null) {
+            statement.setString(16, order.getItemStack().getType().name());
+            statement.setBytes(17, ItemCodec.encode(order.getItemStack(), materialTable));
+            statement.setNull(18, Types.INTEGER);
+        } else {
+            statement.setNull(16, Types.VARCHAR);
+            statement.setNull(17, Types.BLOB);
+            statement.setNull(18, Types.INTEGER);
+        }
+        statement.executeUpdate();
     }
 
     @Override
     protected void insertOrderItems(Connection connection, Order order) throws SQLException {
-        try (PreparedStatement statement = connection.prepareStatement(getInsertOrderItemSQL())) {
-            for (OrderItem item : order.getItems()) {
-                statement.setInt(1, order.getId());
-                statement.setString(2, item.getItemType());
-                statement.setInt(3, item.getAmount());
-                statement.setDouble(4, item.getPricePerItem());
-                statement.setString(5, item.getMeta());
-                if (item.getDelivererUuid() != null) {
-                    statement.setString(6, item.getDelivererUuid().toString());
-                } else {
-                    statement.setNull(6, Types.VARCHAR);
-                }
-                if (item.getDeliveredAt() > 0) {
-                    statement.setLong(7, item.getDeliveredAt());
-                } else {
-                    statement.setNull(7, Types.INTEGER);
-                }
-                statement.setInt(8, item.getDeliveredAmount());
-                statement.addBatch();
-            }
-            statement.executeBatch();
+        // Items are inserted one by one so each learns its generated id for later delta updates
+        PreparedStatement statement = statements(connection).get(SqlStatement.INSERT_ORDER_ITEM);
+        for (OrderItem item : order.getItemsSnapshot()) {
+            executeItemInsert(statement, order, item);
         }
     }
 
     @Override
-    protected List<Order> loadOrdersFromDatabase(Connection connection) throws SQLException {
-        List<Order> orders = new ArrayList<>();
+    protected void insertOrderItem(Connection connection, Order order, OrderItem item) throws SQLException {
+        PreparedStatement statement = statements(connection).get(SqlStatement.INSERT_ORDER_ITEM);
+        executeItemInsert(statement, order, item);
+    }
+
+    private void executeItemInsert(PreparedStatement statement, Order order, OrderItem item) throws SQLException {
+        statement.setInt(1, order.getId());
+        statement.setString(2, item.getItemType());
+        statement.setInt(3, item.getAmount());
+        statement.setDouble(4, item.getPricePerItem());
+        statement.setString(5, item.getMeta());
+        if (item.getDelivererUuid() != null) {
+            statement.setString(6, item.getDelivererUuid().toString());
+        } else {
+            statement.setNull(6, Types.VARCHAR);
+        }
+        if (item.getDeliveredAt() > 0) {
+            statement.setLong(7, item.getDeliveredAt());
+        } else {
+            statement.setNull(7, Types.INTEGER);
+        }
+        statement.setInt(8, item.getDeliveredAmount());
+        statement.executeUpdate();
         
-        try (PreparedStatement statement = connection.prepareStatement(getSelectAllOrdersSQL());
-             ResultSet resultSet = statement.executeQuery()) {
-            
-            while (resultSet.next()) {
-                Order order = createOrderFromResultSet(resultSet);
-                loadOrderItems(connection, order);
-                orders.add(order);
+        try (ResultSet keys = statement.getGeneratedKeys()) {
+            if (keys.next()) {
+                item.setId(keys.getInt(1));
             }
         }
-        
-        return orders;
+        item.setOrderId(order.getId());
+        item.drainDirty();
     }
 
     @Override
-    protected void deleteOrderFromDatabase(Connection connection, String orderId) throws SQLException {
-        try (PreparedStatement statement = connection.prepareStatement(getDeleteOrderSQL())) {
-            statement.setString(1, orderId);
-            statement.executeUpdate();
+    protected void updateOrderItems(Connection connection, List<OrderItem> items) throws SQLException {
+        PreparedStatement statement = statements(connection).get(SqlStatement.UPDATE_ORDER_ITEM);
+        for (OrderItem item : items) {
+            statement.setInt(1, item.getAmount());
+            if (item.getDelivererUuid() != null) {
+                statement.setString(2, item.getDelivererUuid().toString());
+            } else {
+                statement.setNull(2, Types.VARCHAR);
+            }
+            if (item.getDeliveredAt() > 0) {
+                statement.setLong(3, item.getDeliveredAt());
+            } else {
+                statement.setNull(3, Types.INTEGER);
+            }
+            statement.setInt(4, item.getDeliveredAmount());
+            statement.setInt(5, item.getId());
+            statement.addBatch();
         }
+        statement.executeBatch();
     }
 
     @Override
-    protected void deleteOrderItemsFromDatabase(Connection connection, String orderId) throws SQLException {
-        try (PreparedStatement statement = connection.prepareStatement(getDeleteOrderItemsSQL())) {
-            statement.setString(1, orderId);
-            statement.executeUpdate();
+    protected List<Order> loadOrdersFromDatabase(Connection connection) throws SQLException {
+        PreparedStatement statement = statements(connection).get(SqlStatement.SELECT_ALL_ORDERS_WITH_ITEMS);
+        try (ResultSet resultSet = statement.executeQuery()) {
+            return readOrdersWithItems(resultSet);
         }
     }
 
     @Override
-    protected void updateOrderInDatabase(Connection connection, Order order) throws SQLException {
-        try (PreparedStatement statement = connection.prepareStatement(getUpdateOrderSQL())) {
-            statement.setString(1, order.getStatus().name());
-            if (order.getExpiresAt() > 0) {
-                statement.setLong(2, order.getExpiresAt());
-            } else {
-                statement.setNull(2, Types.INTEGER);
-            }
-            statement.setDouble(3, order.getFee());
-            statement.setDouble(4, order.getTotalPrice());
-            statement.setString(5, order.getDescription());
-            statement.setInt(6, order.getId());
-            statement.executeUpdate();
+    protected int streamOrdersFromDatabase(Connection connection, Consumer<Order> consumer) throws SQLException {
+        PreparedStatement statement = statements(connection).get(SqlStatement.STREAM_ORDERS_WITH_ITEMS);
+        statement.setFetchSize(fetchSize);
+        try (ResultSet resultSet = statement.executeQuery()) {
+            return readOrdersWithItems(resultSet, consumer);
         }
     }
 
     @Override
-    protected List<Order> getPlayerOrdersFromDatabase(Connection connection, UUID playerId) throws SQLException {
-        List<Order> orders = new ArrayList<>();
+    protected void deleteOrderFromDatabase(Connection connection, String orderId) throws SQLException {
+        PreparedStatement statement = statements(connection).get(SqlStatement.DELETE_ORDER);
+        statement.setString(1, orderId);
+        statement.executeUpdate();
+    }
+
+    @Override
+    protected void deleteOrderItemsFromDatabase(Connection connection, String orderId) throws SQLException {
+        PreparedStatement statement = statements(connection).get(SqlStatement.DELETE_ORDER_ITEMS);
+        statement.setString(1, orderId);
+        statement.executeUpdate();
+    }
+
+    @Override
+    protected boolean updateOrderInDatabase(Connection connection, Order order) throws SQLException {
+        PreparedStatement statement = statements(connection).get(SqlStatement.UPDATE_ORDER);
+        bindOrderUpdate(statement, order);
+        return statement.executeUpdate() > 0;
+    }
+
+    private void bindOrderUpdate(PreparedStatement statement, Order order) throws SQLException {
+        int index = 1;
+        for (OrderField field : FULL_UPDATE_FIELDS) {
+            bindOrderField(statement, index++, order, field);
+        }
+        statement.setInt(index++, order.getId());
+        statement.setLong(index, order.getVersion());
+    }
+
+    @Override
+    protected boolean updateOrderColumns(Connection connection, Order order, Set<OrderField> fields) throws SQLException {
+        StringBuilder sql = new StringBuilder("UPDATE ").append(ORDERS_TABLE).append(" SET ");
+        for (OrderField field : fields) {
+            sql.append(getOrderColumn(field)).append(" = ?, ");
+        }
+        sql.append("version = version + 1 WHERE id = ? AND version = ?");
         
-        try (PreparedStatement statement = connection.prepareStatement(getSelectPlayerOrdersSQL())) {
-            statement.setString(1, playerId.toString());
-            
-            try (ResultSet resultSet = statement.executeQuery()) {
-                while (resultSet.next()) {
-                    Order order = createOrderFromResultSet(resultSet);
-                    loadOrderItems(connection, order);
-                    orders.add(order);
+        // Only a handful of column combinations occur, so the shapes stay cached
+        PreparedStatement statement = statements(connection).get(sql.toString());
+        int index = 1;
+        for (OrderField field : fields) {
+            bindOrderField(statement, index++, order, field);
+        }
+        statement.setInt(index++, order.getId());
+        statement.setLong(index, order.getVersion());
+        return statement.executeUpdate() > 0;
+    }
+
+    private void bindOrderField(PreparedStatement statement, int index, Order order, OrderField field) throws SQLException {
+        switch (field) {
+            case STATUS:
+                statement.setString(index, order.getStatus().name());
+                break;
+            case EXPIRES_AT:
+                if (order.getExpiresAt() > 0) {
+                    statement.setLong(index, order.getExpiresAt());
+                } else {
+                    statement.setNull(index, Types.INTEGER);
                 }
+                break;
+            case FEE:
+                statement.setDouble(index, order.getFee());
+                break;
+            case TOTAL_PRICE:
+                statement.setDouble(index, order.getTotalPrice());
+                break;
+            case DESCRIPTION:
+                statement.setString(index, order.getDescription());
+                break;
+            case QUANTITY:
+                statement.setInt(index, order.getQuantity());
+                break;
+            case PRICE_PER_ITEM:
+                statement.setDouble(index, order.getPricePerItem());
+                break;
+            case DELIVERED_AMOUNT:
+                statement.setInt(index, order.getDeliveredAmountForWrite());
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown order field: " + field);
+        }
+    }
+
+    @Override
+    protected List<Integer> updateOrderStatuses(Connection connection, OrderStatus status, List<Order> orders) throws SQLException {
+        // One batched statement; per-row counts tell which versions no longer matched
+        PreparedStatement statement = statements(connection).get(SqlStatement.UPDATE_ORDER_STATUS);
+        for (Order order : orders) {
+            statement.setString(1, status.name());
+            statement.setInt(2, order.getId());
+            statement.setLong(3, order.getVersion());
+            statement.addBatch();
+        }
+        int[] counts = statement.executeBatch();
+        List<Integer> conflicts = new ArrayList<>();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) {
+                conflicts.add(orders.get(i).getId());
             }
         }
+        return conflicts;
+    }
+
+    @Override
+    protected Order loadOrderFromDatabase(Connection connection, int orderId) throws SQLException {
+        PreparedStatement statement = statements(connection).get(SqlStatement.SELECT_ORDER);
+        statement.setInt(1, orderId);
+        try (ResultSet resultSet = statement.executeQuery()) {
+            if (!resultSet.next()) {
+                return null;
+            }
+            Order order = createOrderFromResultSet(resultSet);
+            order.clearChanges();
+            return order;
+        }
+    }
+
+    @Override
+    protected List<Order> getPlayerOrdersFromDatabase(Connection connection, UUID playerId) throws SQLException {
+        PreparedStatement statement = statements(connection).get(SqlStatement.SELECT_PLAYER_ORDERS_WITH_ITEMS);
+        statement.setString(1, playerId.toString());
         
-        return orders;
+        try (ResultSet resultSet = statement.executeQuery()) {
+            return readOrdersWithItems(resultSet);
+        }
     }
 
     @Override
     protected List<String> getExpiredOrderIds(Connection connection) throws SQLException {
         List<String> expiredIds = new ArrayList<>();
         
-        try (PreparedStatement statement = connection.prepareStatement(getSelectExpiredOrdersSQL())) {
-            statement.setLong(1, System.currentTimeMillis());
-            
-            try (ResultSet resultSet = statement.executeQuery()) {
-                while (resultSet.next()) {
-                    expiredIds.add(resultSet.getString("id"));
-                }
+        PreparedStatement statement = statements(connection).get(SqlStatement.SELECT_EXPIRED_ORDERS);
+        statement.setLong(1, System.currentTimeMillis());
+        
+        try (ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                expiredIds.add(resultSet.getString("id"));
             }
         }
         
@@ -366,23 +626,51 @@ public class SQLiteDatabase extends DatabaseManager {
 
     @Override
     protected int deleteExpiredOrdersFromDatabase(Connection connection) throws SQLException {
-        try (PreparedStatement statement = connection.prepareStatement(getDeleteExpiredOrdersSQL())) {
-            statement.setLong(1, System.currentTimeMillis());
-            return statement.executeUpdate();
+        PreparedStatement statement = statements(connection).get(SqlStatement.DELETE_EXPIRED_ORDERS);
+        statement.setLong(1, System.currentTimeMillis());
+        return statement.executeUpdate();
+    }
+
+    @Override
+    protected int deleteOrdersFromDatabase(Connection connection, List<Integer> orderIds) throws SQLException {
+        if (orderIds.isEmpty()) {
+            return 0;
         }
+        PreparedStatement items = statements(connection).get(SqlStatement.DELETE_ORDER_ITEMS);
+        PreparedStatement orders = statements(connection).get(SqlStatement.DELETE_ORDER);
+        for (int orderId : orderIds) {
+            items.setString(1, String.valueOf(orderId));
+            items.addBatch();
+            orders.setString(1, String.valueOf(orderId));
+            orders.addBatch();
+        }
+        items.executeBatch();
+        int deleted = 0;
+        for (int count : orders.executeBatch()) {
+            if (count > 0) {
+                deleted += count;
+            }
+        }
+        return deleted;
+    }
+
+    @Override
+    protected int deleteFinishedOrdersFromDatabase(Connection connection, long cutoff) throws SQLException {
+        PreparedStatement statement = statements(connection).get(SqlStatement.DELETE_FINISHED_ORDERS);
+        statement.setLong(1, cutoff);
+        return statement.executeUpdate();
     }
 
     @Override
     protected int deleteOrphanedItems(Connection connection) throws SQLException {
-        try (PreparedStatement statement = connection.prepareStatement(getDeleteOrphanedItemsSQL())) {
-            return statement.executeUpdate();
-        }
+        PreparedStatement statement = statements(connection).get(SqlStatement.DELETE_ORPHANED_ITEMS);
+        return statement.executeUpdate();
     }
 
     @Override
     protected int getTableCount(Connection connection, String tableName) throws SQLException {
-        try (PreparedStatement statement = connection.prepareStatement("SELECT COUNT(*) FROM " + tableName);
-             ResultSet resultSet = statement.executeQuery()) {
+        PreparedStatement statement = statements(connection).get("SELECT COUNT(*) FROM " + tableName);
+        try (ResultSet resultSet = statement.executeQuery()) {
             
             if (resultSet.next()) {
                 return resultSet.getInt(1);
@@ -391,10 +679,20 @@ public class SQLiteDatabase extends DatabaseManager {
         }
     }
 
+    @Override
+    protected String getCountActiveOrdersSQL() {
+        return "SELECT COUNT(*) FROM " + ORDERS_TABLE + " WHERE " + ACTIVE_STATUS_PREDICATE;
+    }
+
+    @Override
+    protected String getCountExpiredOrdersSQL() {
+        return "SELECT COUNT(*) FROM " + ORDERS_TABLE + " WHERE expires_at IS NOT NULL AND expires_at < ?";
+    }
+
     @Override
     protected int getActiveOrdersCount(Connection connection) throws SQLException {
-        try (PreparedStatement statement = connection.prepareStatement("SELECT COUNT(*) FROM " + ORDERS_TABLE + " WHERE status IN ('ACTIVE', 'PENDING')");
-             ResultSet resultSet = statement.executeQuery()) {
+        PreparedStatement statement = statements(connection).get(SqlStatement.COUNT_ACTIVE_ORDERS);
+        try (ResultSet resultSet = statement.executeQuery()) {
             
             if (resultSet.next()) {
                 return resultSet.getInt(1);
@@ -405,15 +703,14 @@ public class SQLiteDatabase extends DatabaseManager {
 
     @Override
     protected int getExpiredOrdersCount(Connection connection) throws SQLException {
-        try (PreparedStatement statement = connection.prepareStatement("SELECT COUNT(*) FROM " + ORDERS_TABLE + " WHERE expires_at IS NOT NULL AND expires_at < ?")) {
-            statement.setLong(1, System.currentTimeMillis());
-            
-            try (ResultSet resultSet = statement.executeQuery()) {
-                if (resultSet.next()) {
-                    return resultSet.getInt(1);
-                }
-                return 0;
+        PreparedStatement statement = statements(connection).get(SqlStatement.COUNT_EXPIRED_ORDERS);
+        statement.setLong(1, System.currentTimeMillis());
+        
+        try (ResultSet resultSet = statement.executeQuery()) {
+            if (resultSet.next()) {
+                return resultSet.getInt(1);
             }
+            return 0;
         }
     }
 
@@ -436,38 +733,94 @@ public class SQLiteDatabase extends DatabaseManager {
         order.setFee(resultSet.getDouble("fee"));
         order.setTotalPrice(resultSet.getDouble("total_price"));
         order.setDescription(resultSet.getString("description"));
+        order.setQuantity(resultSet.getInt("quantity"));
+        order.setPricePerItem(resultSet.getDouble("price_per_item"));
+        order.setDeliveredAmount(resultSet.getInt("delivered_amount"));
+        order.setVersion(resultSet.getLong("version"));
+        
+        int templateId = resultSet.getInt("template_id");
+        ItemTemplate template = resultSet.wasNull() ? null : itemTemplates.get(templateId);
+        byte[] itemData = resultSet.getBytes("item_data");
+        if (template != null) {
+            order.setItemTemplate(template);
+        } else if (itemData != null) {
+            try {
+                order.setItemStack(ItemCodec.decode(itemData, materialTable));
+            } catch (RuntimeException e) {
+                plugin.getLogger().log(Level.WARNING, "Failed to decode item of order " + order.getId(), e);
+            }
+        }
         
         return order;
     }
 
-    private void loadOrderItems(Connection connection, Order order) throws SQLException {
-        try (PreparedStatement statement = connection.prepareStatement(getSelectOrderItemsSQL())) {
-            statement.setInt(1, order.getId());
-            
-            try (ResultSet resultSet = statement.executeQuery()) {
-                while (resultSet.next()) {
-                    OrderItem item = new OrderItem();
-                    item.setId(resultSet.getInt("id"));
-                    item.setOrderId(order.getId());
-                    item.setItemType(resultSet.getString("item_type"));
-                    item.setAmount(resultSet.getInt("amount"));
-                    item.setPricePerItem(resultSet.getDouble("price_per_item"));
-                    item.setMeta(resultSet.getString("meta"));
-                    
-                    String delivererUuid = resultSet.getString("deliverer_uuid");
-                    if (delivererUuid != null) {
-                        item.setDelivererUuid(UUID.fromString(delivererUuid));
-                    }
-                    
-                    long deliveredAt = resultSet.getLong("delivered_at");
-                    if (!resultSet.wasNull()) {
-                        item.setDeliveredAt(deliveredAt);
-                    }
-                    
-                    item.setDeliveredAmount(resultSet.getInt("delivered_amount"));
-                    order.addItem(item);
+    /**
+     * Group joined order/item rows into orders in one cursor pass
+     */
+    private List<Order> readOrdersWithItems(ResultSet resultSet) throws SQLException {
+        List<Order> orders = new ArrayList<>();
+        readOrdersWithItems(resultSet, orders::add);
+        return orders;
+    }
+
+    /**
+     * Group joined order/item rows into orders, handing each order to the consumer as
+     * soon as its last row has been read. Only one order is held at a time.
+     */
+    private int readOrdersWithItems(ResultSet resultSet, Consumer<Order> consumer) throws SQLException {
+        Order current = null;
+        int count = 0;
+        
+        while (resultSet.next()) {
+            int orderId = resultSet.getInt("id");
+            if (current == null || current.getId() != orderId) {
+                if (current != null) {
+                    emitLoadedOrder(current, consumer);
+                    count++;
                 }
+                current = createOrderFromResultSet(resultSet);
             }
+            
+            // LEFT JOIN yields a NULL item id for orders without items
+            int itemId = resultSet.getInt("item_id");
+            if (!resultSet.wasNull()) {
+                current.addItem(createOrderItemFromResultSet(resultSet, itemId, orderId));
+            }
+        }
+        
+        if (current != null) {
+            emitLoadedOrder(current, consumer);
+            count++;
+        }
+        return count;
+    }
+
+    private void emitLoadedOrder(Order order, Consumer<Order> consumer) {
+        // Freshly loaded orders match the database
+        order.clearChanges();
+        consumer.accept(order);
+    }
+
+    private OrderItem createOrderItemFromResultSet(ResultSet resultSet, int itemId, int orderId) throws SQLException {
+        OrderItem item = new OrderItem();
+        item.setId(itemId);
+        item.setOrderId(orderId);
+        item.setItemType(resultSet.getString("item_type"));
+        item.setAmount(resultSet.getInt("amount"));
+        item.setPricePerItem(resultSet.getDouble("item_price_per_item"));
+        item.setMeta(resultSet.getString("meta"));
+        
+        String delivererUuid = resultSet.getString("deliverer_uuid");
+        if (delivererUuid != null) {
+            item.setDelivererUuid(UUID.fromString(delivererUuid));
         }
+        
+        long deliveredAt = resultSet.getLong("delivered_at");
+        if (!resultSet.wasNull()) {
+            item.setDeliveredAt(deliveredAt);
+        }
+        
+        item.setDeliveredAmount(resultSet.getInt("item_delivered_amount"));
+        return item;
     }
 }
\ No newline at end of file
@@ -0,0 +1,28 @@
+package com.donutxorders.database;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A single versioned schema change. Migrations are applied in ascending version
+ * order and each one runs in its own transaction.
+ */
+public class SchemaMigration {
+
+    private final int version;
+    private final String description;
+    private final List<String> statements;
+
+    public SchemaMigration(int version, String description, String... statements) {
+        this.version = version;
+        this.description = description;
+        this.statements = Collections.unmodifiableList(Arrays.asList(statements));
+    }
+
+    public int getVersion() { return version; }
+
+    public String getDescription() { return description; }
+
+    public List<String> getStatements() { return statements; }
+}
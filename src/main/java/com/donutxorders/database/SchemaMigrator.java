@@ -0,0 +1,142 @@
+package com.donutxorders.database;
+
+import com.donutxorders.core.DonutxOrders;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Records the schema version in the database and applies pending migrations at startup.
+ * Also verifies with EXPLAIN QUERY PLAN that hot queries are served by an index.
+ */
+public class SchemaMigrator {
+
+    private final DonutxOrders plugin;
+    private final String versionTable;
+
+    public SchemaMigrator(DonutxOrders plugin, String versionTable) {
+        this.plugin = plugin;
+        this.versionTable = versionTable;
+    }
+
+    /**
+     * Apply every migration newer than the recorded schema version
+     */
+    public int migrate(Connection connection, List<SchemaMigration> migrations) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS " + versionTable + " (" +
+                    "version INTEGER PRIMARY KEY," +
+                    "description TEXT NOT NULL," +
+                    "applied_at INTEGER NOT NULL" +
+                    ")");
+        }
+
+        int currentVersion = getCurrentVersion(connection);
+        List<SchemaMigration> pending = new ArrayList<>();
+        for (SchemaMigration migration : migrations) {
+            if (migration.getVersion() > currentVersion) {
+                pending.add(migration);
+            }
+        }
+        pending.sort(Comparator.comparingInt(SchemaMigration::getVersion));
+
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try {
+            for (SchemaMigration migration : pending) {
+                applyMigration(connection, migration);
+            }
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+
+        if (!pending.isEmpty()) {
+            plugin.getLogger().info("Database schema migrated from version " + currentVersion +
+                    " to " + pending.get(pending.size() - 1).getVersion());
+        }
+        return pending.size();
+    }
+
+    /**
+     * Get the highest applied schema version, or 0 for a fresh database
+     */
+    public int getCurrentVersion(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT MAX(version) FROM " + versionTable)) {
+            return resultSet.next() ? resultSet.getInt(1) : 0;
+        }
+    }
+
+    private void applyMigration(Connection connection, SchemaMigration migration) throws SQLException {
+        try {
+            try (Statement statement = connection.createStatement()) {
+                for (String sql : migration.getStatements()) {
+                    statement.execute(sql);
+                }
+            }
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "INSERT INTO " + versionTable + " (version, description, applied_at) VALUES (?, ?, ?)")) {
+                statement.setInt(1, migration.getVersion());
+                statement.setString(2, migration.getDescription());
+                statement.setLong(3, System.currentTimeMillis());
+                statement.executeUpdate();
+            }
+            connection.commit();
+            plugin.getLogger().info("Applied schema migration " + migration.getVersion() + ": " + migration.getDescription());
+        } catch (SQLException e) {
+            connection.rollback();
+            throw new SQLException("Schema migration " + migration.getVersion() + " failed: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Run EXPLAIN QUERY PLAN for each hot query and report any that falls back to a
+     * full table scan. Returns true when every query is served by an index.
+     */
+    public boolean verifyQueryPlans(Connection connection, Map<String, String> hotQueries) throws SQLException {
+        boolean allIndexed = true;
+        for (Map.Entry<String, String> entry : hotQueries.entrySet()) {
+            List<String> plan = explain(connection, entry.getValue());
+            for (String detail : plan) {
+                if (isTableScan(detail)) {
+                    plugin.getLogger().severe("Query " + entry.getKey() + " falls back to a table scan: " + detail);
+                    allIndexed = false;
+                }
+            }
+            if (plugin.getConfigManager().isDebugMode()) {
+                plugin.getLogger().info("Query plan for " + entry.getKey() + ": " + plan);
+            }
+        }
+        return allIndexed;
+    }
+
+    private List<String> explain(Connection connection, String sql) throws SQLException {
+        List<String> details = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement("EXPLAIN QUERY PLAN " + sql)) {
+            // The plan does not depend on the bound values
+            int parameters = statement.getParameterMetaData().getParameterCount();
+            for (int i = 1; i <= parameters; i++) {
+                statement.setNull(i, Types.NULL);
+            }
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    details.add(resultSet.getString("detail"));
+                }
+            }
+        }
+        return details;
+    }
+
+    // "SCAN donutx_orders" (or "SCAN TABLE donutx_orders" on older SQLite) without an index
+    private boolean isTableScan(String detail) {
+        return detail != null && detail.startsWith("SCAN ") && !detail.contains(" USING ");
+    }
+}
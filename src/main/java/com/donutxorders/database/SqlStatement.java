@@ -0,0 +1,45 @@
+package com.donutxorders.database;
+
+/**
+ * Fixed SQL statements that are prepared once per connection and reused.
+ * The SQL text for each one is built once by {@link DatabaseManager}.
+ */
+public enum SqlStatement {
+    INSERT_ORDER,
+    UPDATE_ORDER,
+    UPDATE_ORDER_STATUS,
+    DELETE_ORDER,
+    SELECT_ORDER,
+    SELECT_PLAYER_ORDERS,
+    SELECT_ALL_ORDERS,
+    SELECT_ALL_ORDERS_WITH_ITEMS,
+    SELECT_PLAYER_ORDERS_WITH_ITEMS,
+    STREAM_ORDERS_WITH_ITEMS,
+    SELECT_EXPIRED_ORDERS,
+    INSERT_ORDER_ITEM(true),
+    UPDATE_ORDER_ITEM,
+    DELETE_ORDER_ITEMS,
+    SELECT_ORDER_ITEMS,
+    INSERT_PLAYER_DATA,
+    UPDATE_PLAYER_DATA,
+    SELECT_PLAYER_DATA,
+    DELETE_EXPIRED_ORDERS,
+    DELETE_FINISHED_ORDERS,
+    DELETE_ORPHANED_ITEMS,
+    COUNT_ACTIVE_ORDERS,
+    COUNT_EXPIRED_ORDERS;
+
+    private final boolean returnsGeneratedKeys;
+
+    SqlStatement() {
+        this(false);
+    }
+
+    SqlStatement(boolean returnsGeneratedKeys) {
+        this.returnsGeneratedKeys = returnsGeneratedKeys;
+    }
+
+    public boolean returnsGeneratedKeys() {
+        return returnsGeneratedKeys;
+    }
+}
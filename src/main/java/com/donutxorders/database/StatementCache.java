@@ -0,0 +1,124 @@
+package com.donutxorders.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Prepared statements cached for one physical connection. A connection is only
+ * ever used by one thread at a time (the writer thread, or whoever borrowed it
+ * from the pool), so the cache itself is not synchronized. Callers must not
+ * close the statements they get; they are closed with the cache.
+ */
+public class StatementCache implements AutoCloseable {
+
+    // Upper bound for statements whose SQL is built per call
+    private static final int MAX_DYNAMIC_STATEMENTS = 32;
+
+    private final Connection connection;
+    private final Map<SqlStatement, String> sql;
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+    private final Map<SqlStatement, PreparedStatement> statements = new EnumMap<>(SqlStatement.class);
+    private final Map<String, PreparedStatement> dynamicStatements = new LinkedHashMap<>(16, 0.75f, true);
+
+    StatementCache(Connection connection, Map<SqlStatement, String> sql, AtomicLong hits, AtomicLong misses) {
+        this.connection = connection;
+        this.sql = sql;
+        this.hits = hits;
+        this.misses = misses;
+    }
+
+    /**
+     * Get the cached statement for a fixed query, preparing it on first use
+     */
+    public PreparedStatement get(SqlStatement key) throws SQLException {
+        PreparedStatement statement = statements.get(key);
+        if (statement != null && !statement.isClosed()) {
+            hits.incrementAndGet();
+            reset(statement);
+            return statement;
+        }
+        misses.incrementAndGet();
+        String text = sql.get(key);
+        if (text == null) {
+            throw new SQLException("No SQL registered for statement " + key);
+        }
+        statement = connection.prepareStatement(text,
+                key.returnsGeneratedKeys() ? Statement.RETURN_GENERATED_KEYS : Statement.NO_GENERATED_KEYS);
+        statements.put(key, statement);
+        return statement;
+    }
+
+    /**
+     * Get a cached statement for SQL built at runtime from a small set of shapes.
+     * The least recently used statement is closed once the bound is reached.
+     */
+    public PreparedStatement get(String text) throws SQLException {
+        PreparedStatement statement = dynamicStatements.get(text);
+        if (statement != null && !statement.isClosed()) {
+            hits.incrementAndGet();
+            reset(statement);
+            return statement;
+        }
+        misses.incrementAndGet();
+        statement = connection.prepareStatement(text);
+        dynamicStatements.put(text, statement);
+        if (dynamicStatements.size() > MAX_DYNAMIC_STATEMENTS) {
+            Iterator<PreparedStatement> eldest = dynamicStatements.values().iterator();
+            closeQuietly(eldest.next());
+            eldest.remove();
+        }
+        return statement;
+    }
+
+    /**
+     * Whether the underlying connection has been closed
+     */
+    public boolean isConnectionClosed() {
+        try {
+            return connection.isClosed();
+        } catch (SQLException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Number of statements currently held
+     */
+    public int size() {
+        return statements.size() + dynamicStatements.size();
+    }
+
+    @Override
+    public void close() {
+        for (PreparedStatement statement : statements.values()) {
+            closeQuietly(statement);
+        }
+        for (PreparedStatement statement : dynamicStatements.values()) {
+            closeQuietly(statement);
+        }
+        statements.clear();
+        dynamicStatements.clear();
+    }
+
+    // Drop parameters and any batch left behind by a call that failed part way
+    private static void reset(PreparedStatement statement) throws SQLException {
+        statement.clearParameters();
+        statement.clearBatch();
+    }
+
+    private static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException ignored) {
+            // The connection is going away; nothing left to release
+        }
+    }
+}
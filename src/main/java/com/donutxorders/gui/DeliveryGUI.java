@@ -4,12 +4,12 @@ import com.donutxorders.core.DonutxOrders;
 import com.donutxorders.managers.EconomyManager;
 import com.donutxorders.managers.ItemManager;
 import com.donutxorders.models.Order;
-import com.donutxorders.utils.ItemUtils;
 import com.donutxorders.utils.MessageUtils;
-import org.bukkit.Bukkit;
 import org.bukkit.Material;
 import org.bukkit.entity.Player;
+import org.bukkit.event.inventory.InventoryAction;
 import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.inventory.InventoryDragEvent;
 import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
 
@@ -22,6 +22,8 @@ public class DeliveryGUI {
     private final EconomyManager economyManager;
     private final ItemManager itemManager;
     private final int size = 36;
+    // Sells what is in the delivery slots to the order
+    private static final int CONFIRM_SLOT = 31;
 
     public DeliveryGUI(DonutxOrders plugin) {
         this.plugin = plugin;
@@ -31,68 +33,137 @@ public class DeliveryGUI {
 
     // Open the delivery GUI for a player and order
     public void openGUI(Player player, Order order) {
-        Inventory inv = Bukkit.createInventory(player, size, MessageUtils.colorize("&bDeliver Items - Order #" + order.getId()));
+        GuiSession inv = new DeliverySession(order)
+                .begin(size, MessageUtils.colorize("&bDeliver Items - Order #" + order.getId()));
         // Fill with glass panes except delivery slots (e.g., 10-16, 19-25)
         for (int i = 0; i < size; i++) {
-            inv.setItem(i, ItemUtils.createGuiItem(Material.GRAY_STAINED_GLASS_PANE, " ", null, false));
+            inv.set(i, GuiItems.filler());
         }
         for (int i : getDeliverySlots()) {
-            inv.setItem(i, new ItemStack(Material.AIR));
+            inv.set(i, null);
+        }
+        inv.set(CONFIRM_SLOT, GuiItems.control("delivery.confirm", Material.EMERALD, "&aConfirm delivery", "&7Sell the items placed above"));
+        inv.show(player);
+    }
+
+    // Open the delivery GUI for the best-paying open order that accepts the item
+    public boolean openBestMatch(Player player, ItemStack item) {
+        List<Order> best = plugin.getOrderManager().getBestOrdersFor(item, 1);
+        if (best.isEmpty()) {
+            player.sendMessage(MessageUtils.colorize("&cNo open orders want this item."));
+            return false;
         }
-        player.openInventory(inv);
+        Order order = best.get(0);
+        player.sendMessage(MessageUtils.colorize("&aDelivering to order #" + order.getId() + " &7- &e$" + order.getPricePerItem()
+                + "&7 each, " + (order.getQuantity() - order.getDeliveredAmount()) + " wanted"));
+        openGUI(player, order);
+        return true;
     }
 
     // Validate items placed in the GUI against the order requirements
     public boolean validateItems(Inventory inv, Order order) {
+        return countItems(inv, findMatchingSlots(inv, order), order) > 0;
+    }
+
+    // Total of the matching slots, or -1 if it is not a valid delivery for the order
+    private int countItems(Inventory inv, List<Integer> slots, Order order) {
         int total = 0;
+        for (int i : slots) {
+            total += inv.getItem(i).getAmount();
+        }
+        return total > 0 && total <= (order.getQuantity() - order.getDeliveredAmount()) ? total : -1;
+    }
+
+    // Slots holding the ordered item, by the same rule every delivery path uses
+    private List<Integer> findMatchingSlots(Inventory inv, Order order) {
+        List<Integer> slots = new ArrayList<>();
+        if (order.getItemStack() == null) return slots;
         for (int i : getDeliverySlots()) {
-            ItemStack item = inv.getItem(i);
-            if (item != null && itemManager.compareItems(item, order.getItemStack())) {
-                total += item.getAmount();
+            if (itemManager.matchesOrder(inv.getItem(i), order)) {
+                slots.add(i);
             }
         }
-        return total > 0 && total <= (order.getQuantity() - order.getDeliveredAmount());
+        return slots;
     }
 
     // Process the delivery: remove items, pay deliverer, update order
     public boolean processDelivery(Player deliverer, Inventory inv, Order order) {
-        if (!validateItems(inv, order)) {
+        List<Integer> slots = findMatchingSlots(inv, order);
+        int deliverAmount = countItems(inv, slots, order);
+        if (deliverAmount < 0) {
             deliverer.sendMessage(MessageUtils.colorize("&cInvalid items for delivery."));
             return false;
         }
-        int deliverAmount = 0;
-        for (int i : getDeliverySlots()) {
-            ItemStack item = inv.getItem(i);
-            if (item != null && itemManager.compareItems(item, order.getItemStack())) {
-                deliverAmount += item.getAmount();
-                inv.setItem(i, new ItemStack(Material.AIR));
-            }
+        if (!order.isOpen()) {
+            deliverer.sendMessage(MessageUtils.colorize("&cThis order is no longer open."));
+            return false;
         }
-        if (deliverAmount <= 0) {
-            deliverer.sendMessage(MessageUtils.colorize("&cNo valid items delivered."));
+        // Reserve the whole delivery; another deliverer may have taken part of the order meanwhile
+        int reserved = order.tryReserve(deliverAmount);
+        if (reserved < deliverAmount) {
+            order.rollbackReservation(reserved);
+            deliverer.sendMessage(MessageUtils.colorize("&cThis order only needs " + reserved + " more items."));
             return false;
         }
         // Payment
         double payment = deliverAmount * order.getPricePerItem();
-        economyManager.depositMoney(deliverer, payment);
+        if (!economyManager.depositMoney(deliverer, payment)) {
+            order.rollbackReservation(reserved);
+            deliverer.sendMessage(MessageUtils.colorize("&cPayment failed, nothing was delivered."));
+            return false;
+        }
+        for (int i : slots) {
+            inv.setItem(i, new ItemStack(Material.AIR));
+        }
 
         // Update order
-        order.setDeliveredAmount(order.getDeliveredAmount() + deliverAmount);
-        if (order.isFullyFulfilled()) {
+        if (order.commitReservation(reserved)) {
             order.setStatus(com.donutxorders.models.OrderStatus.COMPLETED);
         }
-        plugin.getDatabaseManager().updateOrder(order);
+        plugin.getOrderManager().updateOrder(order);
 
         deliverer.sendMessage(MessageUtils.colorize("&aDelivered " + deliverAmount + " items! You earned: " + payment));
         return true;
     }
 
-    // Handle inventory click events (to be called from your listener)
+    // Players may move items in and out of the delivery slots and their own inventory;
+    // everything else in the window is fixed
     public void handleClick(Player player, InventoryClickEvent event, Order order) {
+        if (event.getAction() == InventoryAction.COLLECT_TO_CURSOR) {
+            // Double-clicking would gather matching items from the fixed slots as well
+            event.setCancelled(true);
+            return;
+        }
         int slot = event.getRawSlot();
-        if (slot < 0 || slot >= size) return;
-        if (!isDeliverySlot(slot)) {
+        if (slot == CONFIRM_SLOT) {
             event.setCancelled(true);
+            processDelivery(player, event.getInventory(), order);
+            return;
+        }
+        if (slot >= 0 && slot < size && !isDeliverySlot(slot)) {
+            event.setCancelled(true);
+        }
+    }
+
+    // A drag may only place items into the delivery slots or the player's own inventory
+    public void handleDrag(InventoryDragEvent event) {
+        for (int slot : event.getRawSlots()) {
+            if (slot < size && !isDeliverySlot(slot)) {
+                event.setCancelled(true);
+                return;
+            }
+        }
+    }
+
+    // Give back whatever is still in the delivery slots; what does not fit is dropped at the player's feet
+    public void returnItems(Player player, Inventory inv) {
+        for (int i : getDeliverySlots()) {
+            ItemStack item = inv.getItem(i);
+            if (item == null || item.getType() == Material.AIR) continue;
+            inv.setItem(i, null);
+            for (ItemStack leftover : player.getInventory().addItem(item).values()) {
+                player.getWorld().dropItemNaturally(player.getLocation(), leftover);
+            }
         }
     }
 
@@ -110,4 +181,33 @@ public class DeliveryGUI {
     private boolean isDeliverySlot(int slot) {
         return getDeliverySlots().contains(slot);
     }
+
+    // A delivery window, holding the order being delivered to
+    private class DeliverySession extends GuiSession {
+        final Order order;
+
+        DeliverySession(Order order) {
+            this.order = order;
+        }
+
+        @Override
+        public void handleClick(Player player, InventoryClickEvent event) {
+            DeliveryGUI.this.handleClick(player, event, order);
+        }
+
+        @Override
+        public void handleDrag(Player player, InventoryDragEvent event) {
+            DeliveryGUI.this.handleDrag(event);
+        }
+
+        @Override
+        public void handleClose(Player player) {
+            returnItems(player, getInventory());
+        }
+
+        @Override
+        public boolean acceptsItems() {
+            return true;
+        }
+    }
 }
\ No newline at end of file
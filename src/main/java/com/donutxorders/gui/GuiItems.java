@@ -0,0 +1,41 @@
+package com.donutxorders.gui;
+
+import com.donutxorders.utils.ItemUtils;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shared control items (arrows, close buttons, prompts), each built and colorized
+ * once. {@code Inventory.setItem} stores a copy of the stack, so a shared control
+ * is cloned on placement and never modified.
+ */
+public final class GuiItems {
+
+    private static final Map<String, ItemStack> CONTROLS = new ConcurrentHashMap<>();
+
+    private GuiItems() {
+    }
+
+    /**
+     * The control registered under the id, built from the given look on first use
+     */
+    public static ItemStack control(String id, Material material, String name, String lore) {
+        ItemStack control = CONTROLS.get(id);
+        if (control == null) {
+            control = CONTROLS.computeIfAbsent(id, key -> ItemUtils.createGuiItem(material, name,
+                    lore != null ? Collections.singletonList(lore) : null, false));
+        }
+        return control;
+    }
+
+    /**
+     * Blank pane for unused slots
+     */
+    public static ItemStack filler() {
+        return control("filler", Material.GRAY_STAINED_GLASS_PANE, " ", null);
+    }
+}
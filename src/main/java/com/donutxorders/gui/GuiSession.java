@@ -0,0 +1,117 @@
+package com.donutxorders.gui;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.inventory.InventoryDragEvent;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryHolder;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.Arrays;
+
+/**
+ * One player's open GUI window, kept across re-renders. A render fills in every
+ * slot with {@link #set}; {@link #show} then writes only the slots that differ from
+ * the previous render into the inventory the player already has open. A new
+ * inventory is created and opened only when the player is not looking at this one
+ * any more or the size or title changed.
+ *
+ * Slots are compared by identity first, so cached icons and shared controls that
+ * did not change cost nothing. Not thread-safe; render on the main thread.
+ *
+ * The session is the holder of its inventory and carries the GUI's state for the
+ * player, so a click is routed by the holder instead of the window title.
+ */
+public abstract class GuiSession implements InventoryHolder {
+
+    private Inventory inventory;
+    private String title;
+    // What the inventory holds, as last shown, and what the render in progress will show
+    private ItemStack[] shown = new ItemStack[0];
+    private ItemStack[] next = new ItemStack[0];
+
+    /**
+     * Start a render of a window with the given size and title. Every slot starts
+     * out empty.
+     */
+    public GuiSession begin(int size, String title) {
+        if (next.length != size) {
+            next = new ItemStack[size];
+        } else {
+            Arrays.fill(next, null);
+        }
+        if (inventory != null && (inventory.getSize() != size || !title.equals(this.title))) {
+            inventory = null;
+        }
+        this.title = title;
+        return this;
+    }
+
+    /**
+     * Content of a slot in the render in progress; null leaves it empty
+     */
+    public GuiSession set(int slot, ItemStack item) {
+        next[slot] = item;
+        return this;
+    }
+
+    /**
+     * Apply the render: update the changed slots of the open window in place, or open
+     * a new window if the player no longer has this one open
+     */
+    public void show(Player player) {
+        boolean reuse = inventory != null && player.getOpenInventory().getTopInventory() == inventory;
+        if (!reuse) {
+            inventory = Bukkit.createInventory(this, next.length, title);
+            shown = new ItemStack[next.length];
+        }
+        for (int slot = 0; slot < next.length; slot++) {
+            ItemStack item = next[slot];
+            ItemStack previous = shown[slot];
+            if (item == previous || (item != null && item.equals(previous))) {
+                continue;
+            }
+            inventory.setItem(slot, item);
+            shown[slot] = item;
+        }
+        if (!reuse) {
+            player.openInventory(inventory);
+        }
+    }
+
+    /**
+     * Handle a click in this session's window
+     */
+    public abstract void handleClick(Player player, InventoryClickEvent event);
+
+    /**
+     * Handle a drag over this session's window. Nothing can be dragged into a window
+     * unless the session allows it.
+     */
+    public void handleDrag(Player player, InventoryDragEvent event) {
+        event.setCancelled(true);
+    }
+
+    /**
+     * Handle the player closing this session's window
+     */
+    public void handleClose(Player player) {
+    }
+
+    /**
+     * Whether the player puts their own items into this window. Such a session
+     * decides which clicks to cancel itself and must give back what it holds on close.
+     */
+    public boolean acceptsItems() {
+        return false;
+    }
+
+    /**
+     * The window of the last render, or null before the first one
+     */
+    @Override
+    public Inventory getInventory() {
+        return inventory;
+    }
+}
@@ -5,11 +5,9 @@ import com.donutxorders.managers.ItemManager;
 import com.donutxorders.utils.ItemUtils;
 import com.donutxorders.utils.MessageUtils;
 import de.tr7zw.changeme.nbtapi.NBTItem;
-import org.bukkit.Bukkit;
 import org.bukkit.Material;
 import org.bukkit.entity.Player;
 import org.bukkit.event.inventory.InventoryClickEvent;
-import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
 
 import java.util.*;
@@ -22,6 +20,7 @@ public class ItemSelectionGUI {
     private final int size = 54;
     private final int itemsPerPage = 45;
     private final Map<UUID, GUIState> guiStates = new HashMap<>();
+    private static final String TITLE = MessageUtils.colorize("&bSelect Item");
 
     public ItemSelectionGUI(DonutxOrders plugin) {
         this.plugin = plugin;
@@ -38,37 +37,35 @@ public class ItemSelectionGUI {
         updateDisplay(player, state);
     }
 
-    // Display items in the GUI
+    // Display items in the GUI; only slots that changed are sent
     private void updateDisplay(Player player, GUIState state) {
-        Inventory inv = Bukkit.createInventory(player, size, MessageUtils.colorize("&bSelect Item"));
+        GuiSession inv = state.begin(size, TITLE);
         int start = state.currentPage * itemsPerPage;
         int end = Math.min(start + itemsPerPage, state.filteredItems.size());
-        List<ItemStack> pageItems = state.filteredItems.subList(start, end);
-
-        for (int i = 0; i < itemsPerPage; i++) {
-            int itemIndex = start + i;
-            if (itemIndex < end) {
-                inv.setItem(i, pageItems.get(i));
-            } else {
-                inv.setItem(i, new ItemStack(Material.AIR));
-            }
+
+        for (int i = start; i < end; i++) {
+            inv.set(i - start, state.filteredItems.get(i));
         }
 
         // Controls
-        inv.setItem(47, ItemUtils.createGuiItem(Material.ARROW, "&aPrevious Page", Collections.singletonList("&7Go to previous page"), false));
-        inv.setItem(48, ItemUtils.createGuiItem(Material.HOPPER, "&bFilter: &f" + state.filter, Collections.singletonList("&7Click to change filter"), false));
-        inv.setItem(49, ItemUtils.createGuiItem(Material.PAPER, "&bSearch", Collections.singletonList("&7Click to search items"), false));
-        inv.setItem(50, ItemUtils.createGuiItem(Material.COMPASS, "&bCategory", Collections.singletonList("&7Click to change category"), false));
-        inv.setItem(51, ItemUtils.createGuiItem(Material.ARROW, "&aNext Page", Collections.singletonList("&7Go to next page"), false));
-        inv.setItem(52, ItemUtils.createGuiItem(Material.BARRIER, "&cClose", Collections.singletonList("&7Close the menu"), false));
-
-        player.openInventory(inv);
+        inv.set(47, GuiItems.control("previous-page", Material.ARROW, "&aPrevious Page", "&7Go to previous page"));
+        inv.set(48, GuiItems.control("item-selection.filter." + state.filter, Material.HOPPER, "&bFilter: &f" + state.filter, "&7Click to change filter"));
+        inv.set(49, GuiItems.control("item-selection.search", Material.PAPER, "&bSearch", "&7Click to search items"));
+        inv.set(50, GuiItems.control("item-selection.category", Material.COMPASS, "&bCategory", "&7Click to change category"));
+        inv.set(51, GuiItems.control("next-page", Material.ARROW, "&aNext Page", "&7Go to next page"));
+        inv.set(52, GuiItems.control("close", Material.BARRIER, "&cClose", "&7Close the menu"));
+
+        inv.show(player);
     }
 
     // Handle inventory click events
     public void handleSelection(Player player, InventoryClickEvent event) {
         GUIState state = guiStates.get(player.getUniqueId());
-        if (state == null) return;
+        if (state != null) handleSelection(player, event, state);
+    }
+
+    // Handle a click in the window of the given session
+    private void handleSelection(Player player, InventoryClickEvent event, GUIState state) {
         int slot = event.getRawSlot();
         if (slot < 0 || slot >= size) return;
         event.setCancelled(true);
@@ -177,12 +174,17 @@ public class ItemSelectionGUI {
         return categories.get((idx + 1) % categories.size());
     }
 
-    // State for each player's GUI
-    private static class GUIState {
+    // State for each player's GUI, held by its window
+    private class GUIState extends GuiSession {
         int currentPage = 0;
         String filter = "all";
         String category = "all";
         String search = "";
         List<ItemStack> filteredItems = new ArrayList<>();
+
+        @Override
+        public void handleClick(Player player, InventoryClickEvent event) {
+            handleSelection(player, event, this);
+        }
     }
 }
\ No newline at end of file
@@ -3,13 +3,14 @@ package com.donutxorders.gui;
 import com.donutxorders.core.DonutxOrders;
 import com.donutxorders.managers.OrderManager;
 import com.donutxorders.models.Order;
+import com.donutxorders.models.OrderCursor;
+import com.donutxorders.models.OrderPage;
+import com.donutxorders.models.OrderQuery;
 import com.donutxorders.utils.ItemUtils;
 import com.donutxorders.utils.MessageUtils;
-import org.bukkit.Bukkit;
 import org.bukkit.Material;
 import org.bukkit.entity.Player;
 import org.bukkit.event.inventory.InventoryClickEvent;
-import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
 
 import java.util.*;
@@ -22,6 +23,9 @@ public class MainOrderGUI {
     private final int size = 54;
     private final int ordersPerPage = 45;
     private final Map<UUID, GUIState> guiStates = new HashMap<>();
+    private static final String TITLE = MessageUtils.colorize("&bDonutxOrders - Orders");
+    // Order icons of the market views, shared with the search results
+    static final OrderIconCache ICONS = new OrderIconCache(MainOrderGUI::renderIcon);
 
     public MainOrderGUI(DonutxOrders plugin) {
         this.plugin = plugin;
@@ -39,32 +43,48 @@ public class MainOrderGUI {
         updateDisplay(player, state);
     }
 
-    // Refresh the list of orders for the current state
+    // Restart paging from the first page for the current sort/filter/search
     public void refreshOrders(Player player, GUIState state) {
-        // Fetch all orders (replace with async DB call if needed)
-        List<Order> allOrders = orderManager.sortOrders(orderManager.filterOrders(getAllOrders(), state.filter), state.sortBy);
-        if (!state.search.isEmpty()) {
-            allOrders = orderManager.searchOrders(allOrders, state.search);
-        }
-        state.filteredOrders = allOrders;
+        state.currentPage = 0;
+        state.pageStarts.clear();
+        state.pageStarts.add(null);
+        loadPage(state);
+    }
+
+    // Fetch only the orders shown on the current page
+    private void loadPage(GUIState state) {
+        OrderQuery query = new OrderQuery(ordersPerPage)
+                .statuses(OrderQuery.statusesForFilter(state.filter))
+                .search(state.search)
+                .sortBy(OrderQuery.SortKey.fromString(state.sortBy), false)
+                .after(state.pageStarts.get(state.currentPage));
+        state.page = orderManager.queryOrders(query);
     }
 
     // Handle inventory click events
     public void handleClick(Player player, InventoryClickEvent event) {
         GUIState state = guiStates.get(player.getUniqueId());
-        if (state == null) return;
+        if (state != null) handleClick(player, event, state);
+    }
+
+    // Handle a click in the window of the given session
+    private void handleClick(Player player, InventoryClickEvent event, GUIState state) {
         int slot = event.getRawSlot();
         if (slot < 0 || slot >= size) return;
         event.setCancelled(true);
 
         // Pagination controls
         if (slot == 47 && state.currentPage > 0) {
+            state.pageStarts.remove(state.currentPage);
             state.currentPage--;
+            loadPage(state);
             updateDisplay(player, state);
             return;
         }
-        if (slot == 51 && (state.currentPage + 1) * ordersPerPage < state.filteredOrders.size()) {
+        if (slot == 51 && state.page.hasNext()) {
+            state.pageStarts.add(state.page.getNextCursor());
             state.currentPage++;
+            loadPage(state);
             updateDisplay(player, state);
             return;
         }
@@ -92,60 +112,49 @@ public class MainOrderGUI {
         }
         // Order click (slots 0-44)
         if (slot >= 0 && slot < ordersPerPage) {
-            int index = state.currentPage * ordersPerPage + slot;
-            if (index < state.filteredOrders.size()) {
-                Order order = state.filteredOrders.get(index);
+            if (slot < state.page.getOrders().size()) {
+                Order order = state.page.getOrders().get(slot);
                 // Open order details or handle order action
                 player.sendMessage(MessageUtils.colorize("&aOrder ID: " + order.getId() + " selected."));
             }
         }
     }
 
-    // Update the GUI display for the player
+    // Update the GUI display for the player; only slots that changed are sent
     public void updateDisplay(Player player, GUIState state) {
-        Inventory inv = Bukkit.createInventory(player, size, MessageUtils.colorize("&bDonutxOrders - Orders"));
-        int start = state.currentPage * ordersPerPage;
-        int end = Math.min(start + ordersPerPage, state.filteredOrders.size());
-        List<Order> pageOrders = state.filteredOrders.subList(start, end);
-
-        // Display orders
-        for (int i = 0; i < ordersPerPage; i++) {
-            int orderIndex = start + i;
-            if (orderIndex < end) {
-                Order order = pageOrders.get(i);
-                ItemStack item = ItemUtils.createGuiItem(
-                        order.getItemStack() != null ? order.getItemStack().getType() : Material.PAPER,
-                        "&eOrder #" + order.getId(),
-                        Arrays.asList(
-                                "&7Player: &f" + order.getCreatorUUID(),
-                                "&7Item: &f" + (order.getItemStack() != null ? order.getItemStack().getType().name() : "N/A"),
-                                "&7Qty: &f" + order.getQuantity(),
-                                "&7Price: &f" + order.getPricePerItem(),
-                                "&7Status: &f" + order.getStatus()
-                        ),
-                        false
-                );
-                inv.setItem(i, item);
-            } else {
-                inv.setItem(i, new ItemStack(Material.AIR));
-            }
+        GuiSession inv = state.begin(size, TITLE);
+        List<Order> pageOrders = state.page.getOrders();
+
+        // Display orders; icons are re-rendered only for orders that changed
+        for (int i = 0; i < pageOrders.size() && i < ordersPerPage; i++) {
+            inv.set(i, ICONS.get(pageOrders.get(i)));
         }
 
         // Controls
-        inv.setItem(47, ItemUtils.createGuiItem(Material.ARROW, "&aPrevious Page", Collections.singletonList("&7Go to previous page"), false));
-        inv.setItem(48, ItemUtils.createGuiItem(Material.COMPASS, "&bSort: &f" + state.sortBy, Collections.singletonList("&7Click to change sort"), false));
-        inv.setItem(49, ItemUtils.createGuiItem(Material.HOPPER, "&bFilter: &f" + state.filter, Collections.singletonList("&7Click to change filter"), false));
-        inv.setItem(50, ItemUtils.createGuiItem(Material.PAPER, "&bSearch", Collections.singletonList("&7Click to search orders"), false));
-        inv.setItem(51, ItemUtils.createGuiItem(Material.ARROW, "&aNext Page", Collections.singletonList("&7Go to next page"), false));
-        inv.setItem(52, ItemUtils.createGuiItem(Material.BARRIER, "&cClose", Collections.singletonList("&7Close the menu"), false));
-
-        player.openInventory(inv);
+        inv.set(47, GuiItems.control("previous-page", Material.ARROW, "&aPrevious Page", "&7Go to previous page"));
+        inv.set(48, GuiItems.control("main.sort." + state.sortBy, Material.COMPASS, "&bSort: &f" + state.sortBy, "&7Click to change sort"));
+        inv.set(49, GuiItems.control("main.filter." + state.filter, Material.HOPPER, "&bFilter: &f" + state.filter, "&7Click to change filter"));
+        inv.set(50, GuiItems.control("main.search", Material.PAPER, "&bSearch", "&7Click to search orders"));
+        inv.set(51, GuiItems.control("next-page", Material.ARROW, "&aNext Page", "&7Go to next page"));
+        inv.set(52, GuiItems.control("close", Material.BARRIER, "&cClose", "&7Close the menu"));
+
+        inv.show(player);
     }
 
-    // Helper: get all orders (replace with async DB call as needed)
-    private List<Order> getAllOrders() {
-        // Example: return plugin.getDatabaseManager().loadOrders().join();
-        return new ArrayList<>(); // Replace with actual order loading
+    // Market icon of an order, as shown in the main and search views
+    static ItemStack renderIcon(Order order) {
+        return ItemUtils.createGuiItem(
+                order.getItemStack() != null ? order.getItemStack().getType() : Material.PAPER,
+                "&eOrder #" + order.getId(),
+                Arrays.asList(
+                        "&7Player: &f" + order.getCreatorUUID(),
+                        "&7Item: &f" + (order.getItemStack() != null ? order.getItemStack().getType().name() : "N/A"),
+                        "&7Qty: &f" + order.getQuantity(),
+                        "&7Price: &f" + order.getPricePerItem(),
+                        "&7Status: &f" + order.getStatus()
+                ),
+                false
+        );
     }
 
     // Helper: get next sort option
@@ -162,12 +171,19 @@ public class MainOrderGUI {
         return filters.get((idx + 1) % filters.size());
     }
 
-    // State for each player's GUI
-    private static class GUIState {
+    // State for each player's GUI, held by its window
+    private class GUIState extends GuiSession {
         int currentPage = 0;
         String sortBy = "created";
         String filter = "all";
         String search = "";
-        List<Order> filteredOrders = new ArrayList<>();
+        // Cursor that starts each visited page; the first page starts at null
+        List<OrderCursor> pageStarts = new ArrayList<>();
+        OrderPage page = OrderPage.empty();
+
+        @Override
+        public void handleClick(Player player, InventoryClickEvent event) {
+            MainOrderGUI.this.handleClick(player, event, this);
+        }
     }
 }
\ No newline at end of file
@@ -7,7 +7,6 @@ import com.donutxorders.managers.ItemManager;
 import com.donutxorders.models.Order;
 import com.donutxorders.utils.ItemUtils;
 import com.donutxorders.utils.MessageUtils;
-import org.bukkit.Bukkit;
 import org.bukkit.Material;
 import org.bukkit.entity.Player;
 import org.bukkit.event.inventory.InventoryClickEvent;
@@ -24,11 +23,16 @@ public class NewOrderGUI {
     private final ItemManager itemManager;
     private final int size = 27;
 
-    // State for each player
-    private static class OrderState {
+    // State for each player, held by its window
+    private class OrderState extends GuiSession {
         ItemStack item;
         int amount = 1;
         double price = 0.0;
+
+        @Override
+        public void handleClick(Player player, InventoryClickEvent event) {
+            NewOrderGUI.this.handleClick(player, event);
+        }
     }
 
     public NewOrderGUI(DonutxOrders plugin) {
@@ -40,17 +44,17 @@ public class NewOrderGUI {
 
     // Open the new order GUI for a player
     public void openGUI(Player player) {
-        Inventory inv = Bukkit.createInventory(player, size, MessageUtils.colorize("&aCreate New Order"));
+        GuiSession inv = new OrderState().begin(size, MessageUtils.colorize("&aCreate New Order"));
         // Fill with glass panes except input slots
         for (int i = 0; i < size; i++) {
-            inv.setItem(i, ItemUtils.createGuiItem(Material.GRAY_STAINED_GLASS_PANE, " ", null, false));
+            inv.set(i, GuiItems.filler());
         }
         // Item slot (13), amount (11), price (15), confirm (26)
-        inv.setItem(13, new ItemStack(Material.AIR));
-        inv.setItem(11, ItemUtils.createGuiItem(Material.PAPER, "&bSet Amount", Collections.singletonList("&7Click to set amount"), false));
-        inv.setItem(15, ItemUtils.createGuiItem(Material.GOLD_INGOT, "&bSet Price", Collections.singletonList("&7Click to set price"), false));
-        inv.setItem(26, ItemUtils.createGuiItem(Material.LIME_CONCRETE, "&aConfirm", Collections.singletonList("&7Click to create order"), false));
-        player.openInventory(inv);
+        inv.set(13, null);
+        inv.set(11, ItemUtils.createGuiItem(Material.PAPER, "&bSet Amount", Collections.singletonList("&7Click to set amount"), false));
+        inv.set(15, ItemUtils.createGuiItem(Material.GOLD_INGOT, "&bSet Price", Collections.singletonList("&7Click to set price"), false));
+        inv.set(26, ItemUtils.createGuiItem(Material.LIME_CONCRETE, "&aConfirm", Collections.singletonList("&7Click to create order"), false));
+        inv.show(player);
     }
 
     // Set the item for the order
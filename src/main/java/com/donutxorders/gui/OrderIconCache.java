@@ -0,0 +1,67 @@
+package com.donutxorders.gui;
+
+import com.donutxorders.collections.IntObjectHashMap;
+import com.donutxorders.models.Order;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.function.Function;
+
+/**
+ * Rendered GUI icons of orders, reused until the order changes. An icon is keyed by
+ * order id and only valid for the order version and revision it was rendered from,
+ * so a page flip over unchanged orders does no string building or colorizing.
+ *
+ * Icons are shared between viewers: {@code Inventory.setItem} stores a copy, so
+ * placing an icon never exposes the cached stack.
+ */
+public class OrderIconCache {
+
+    // Cleared when exceeded, so icons of orders that are gone cannot pile up
+    private static final int MAX_ENTRIES = 8192;
+
+    private final Function<Order, ItemStack> renderer;
+    private final IntObjectHashMap<Entry> entries = new IntObjectHashMap<>();
+
+    public OrderIconCache(Function<Order, ItemStack> renderer) {
+        this.renderer = renderer;
+    }
+
+    /**
+     * Icon of the order, rendered only if the order changed since it was last shown
+     */
+    public synchronized ItemStack get(Order order) {
+        Entry entry = entries.get(order.getId());
+        long version = order.getVersion();
+        int revision = order.getRevision();
+        if (entry != null && entry.version == version && entry.revision == revision) {
+            return entry.icon;
+        }
+        // Stamps are read before rendering, so a change made meanwhile is re-rendered next time
+        ItemStack icon = renderer.apply(order);
+        if (entry == null && entries.size() >= MAX_ENTRIES) {
+            entries.clear();
+        }
+        entries.put(order.getId(), new Entry(version, revision, icon));
+        return icon;
+    }
+
+    public synchronized void invalidate(int orderId) {
+        entries.remove(orderId);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    private static final class Entry {
+        final long version;
+        final int revision;
+        final ItemStack icon;
+
+        Entry(long version, int revision, ItemStack icon) {
+            this.version = version;
+            this.revision = revision;
+            this.icon = icon;
+        }
+    }
+}
@@ -3,13 +3,14 @@ package com.donutxorders.gui;
 import com.donutxorders.core.DonutxOrders;
 import com.donutxorders.managers.OrderManager;
 import com.donutxorders.models.Order;
+import com.donutxorders.models.OrderCursor;
+import com.donutxorders.models.OrderPage;
+import com.donutxorders.models.OrderQuery;
 import com.donutxorders.utils.ItemUtils;
 import com.donutxorders.utils.MessageUtils;
-import org.bukkit.Bukkit;
 import org.bukkit.Material;
 import org.bukkit.entity.Player;
 import org.bukkit.event.inventory.InventoryClickEvent;
-import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
 
 import java.util.*;
@@ -22,6 +23,8 @@ public class SearchGUI {
     private final int size = 54;
     private final int resultsPerPage = 45;
     private final Map<UUID, SearchState> searchStates = new HashMap<>();
+    private static final String SEARCH_TITLE = MessageUtils.colorize("&bOrder Search");
+    private static final String RESULTS_TITLE = MessageUtils.colorize("&bSearch Results");
 
     public SearchGUI(DonutxOrders plugin) {
         this.plugin = plugin;
@@ -34,7 +37,9 @@ public class SearchGUI {
         state.currentPage = 0;
         state.query = "";
         state.history = new LinkedList<>();
-        state.results = new ArrayList<>();
+        state.historyItem = null;
+        state.pageStarts.clear();
+        state.page = OrderPage.empty();
         updateDisplay(player, state);
     }
 
@@ -45,86 +50,92 @@ public class SearchGUI {
         if (!input.isEmpty()) {
             state.history.addFirst(input);
             if (state.history.size() > 10) state.history.removeLast();
+            state.historyItem = null;
         }
         handleSearch(player, input);
     }
 
-    // Perform the search and update results
+    // Perform the search and show the first page of results
     public void handleSearch(Player player, String query) {
-        List<Order> allOrders = getAllOrders();
-        List<Order> results = allOrders.stream()
-                .filter(order -> matchesQuery(order, query))
-                .collect(Collectors.toList());
         SearchState state = searchStates.get(player.getUniqueId());
         if (state != null) {
-            state.results = results;
+            state.query = query;
             state.currentPage = 0;
+            state.pageStarts.clear();
+            state.pageStarts.add(null);
+            loadPage(state);
             displayResults(player, state);
         }
     }
 
-    // Display search results in the GUI
+    // Fetch only the results shown on the current page
+    private void loadPage(SearchState state) {
+        OrderQuery query = new OrderQuery(resultsPerPage)
+                .search(state.query)
+                .after(state.pageStarts.get(state.currentPage));
+        state.page = orderManager.queryOrders(query);
+    }
+
+    // Display search results in the GUI; only slots that changed are sent
     public void displayResults(Player player, SearchState state) {
-        Inventory inv = Bukkit.createInventory(player, size, MessageUtils.colorize("&bSearch Results"));
-        int start = state.currentPage * resultsPerPage;
-        int end = Math.min(start + resultsPerPage, state.results.size());
-        List<Order> pageResults = state.results.subList(start, end);
-
-        for (int i = 0; i < resultsPerPage; i++) {
-            int resultIndex = start + i;
-            if (resultIndex < end) {
-                Order order = pageResults.get(i);
-                ItemStack item = ItemUtils.createGuiItem(
-                        order.getItemStack() != null ? order.getItemStack().getType() : Material.PAPER,
-                        "&eOrder #" + order.getId(),
-                        Arrays.asList(
-                                "&7Player: &f" + order.getCreatorUUID(),
-                                "&7Item: &f" + (order.getItemStack() != null ? order.getItemStack().getType().name() : "N/A"),
-                                "&7Qty: &f" + order.getQuantity(),
-                                "&7Price: &f" + order.getPricePerItem(),
-                                "&7Status: &f" + order.getStatus()
-                        ),
-                        false
-                );
-                inv.setItem(i, item);
-            } else {
-                inv.setItem(i, new ItemStack(Material.AIR));
-            }
+        GuiSession inv = state.begin(size, RESULTS_TITLE);
+        List<Order> pageResults = state.page.getOrders();
+
+        // Same icons as the market view, re-rendered only for orders that changed
+        for (int i = 0; i < pageResults.size() && i < resultsPerPage; i++) {
+            inv.set(i, MainOrderGUI.ICONS.get(pageResults.get(i)));
         }
 
         // Controls
-        inv.setItem(47, ItemUtils.createGuiItem(Material.ARROW, "&aPrevious Page", Collections.singletonList("&7Go to previous page"), false));
-        inv.setItem(48, ItemUtils.createGuiItem(Material.PAPER, "&bSearch", Collections.singletonList("&7Click to search again"), false));
-        inv.setItem(49, ItemUtils.createGuiItem(Material.BOOK, "&bHistory", state.history.stream().limit(5).collect(Collectors.toList()), false));
-        inv.setItem(51, ItemUtils.createGuiItem(Material.ARROW, "&aNext Page", Collections.singletonList("&7Go to next page"), false));
-        inv.setItem(52, ItemUtils.createGuiItem(Material.BARRIER, "&cClose", Collections.singletonList("&7Close the menu"), false));
+        inv.set(47, GuiItems.control("previous-page", Material.ARROW, "&aPrevious Page", "&7Go to previous page"));
+        inv.set(48, GuiItems.control("search.again", Material.PAPER, "&bSearch", "&7Click to search again"));
+        inv.set(49, historyItem(state));
+        inv.set(51, GuiItems.control("next-page", Material.ARROW, "&aNext Page", "&7Go to next page"));
+        inv.set(52, GuiItems.control("close", Material.BARRIER, "&cClose", "&7Close the menu"));
 
-        player.openInventory(inv);
+        inv.show(player);
     }
 
     // Update the GUI display (initial or after search)
     private void updateDisplay(Player player, SearchState state) {
-        Inventory inv = Bukkit.createInventory(player, size, MessageUtils.colorize("&bOrder Search"));
-        inv.setItem(22, ItemUtils.createGuiItem(Material.PAPER, "&bEnter search query", Collections.singletonList("&7Type in chat to search orders"), false));
-        inv.setItem(26, ItemUtils.createGuiItem(Material.BARRIER, "&cClose", Collections.singletonList("&7Close the menu"), false));
-        player.openInventory(inv);
+        state.begin(size, SEARCH_TITLE)
+                .set(22, GuiItems.control("search.prompt", Material.PAPER, "&bEnter search query", "&7Type in chat to search orders"))
+                .set(26, GuiItems.control("close", Material.BARRIER, "&cClose", "&7Close the menu"))
+                .show(player);
+    }
+
+    // History button listing the latest searches, rebuilt only when the history changed
+    private ItemStack historyItem(SearchState state) {
+        if (state.historyItem == null) {
+            state.historyItem = ItemUtils.createGuiItem(Material.BOOK, "&bHistory",
+                    state.history.stream().limit(5).collect(Collectors.toList()), false);
+        }
+        return state.historyItem;
     }
 
     // Handle inventory click events
     public void handleClick(Player player, InventoryClickEvent event) {
         SearchState state = searchStates.get(player.getUniqueId());
-        if (state == null) return;
+        if (state != null) handleClick(player, event, state);
+    }
+
+    // Handle a click in the window of the given session
+    private void handleClick(Player player, InventoryClickEvent event, SearchState state) {
         int slot = event.getRawSlot();
         if (slot < 0 || slot >= size) return;
         event.setCancelled(true);
 
         if (slot == 47 && state.currentPage > 0) {
+            state.pageStarts.remove(state.currentPage);
             state.currentPage--;
+            loadPage(state);
             displayResults(player, state);
             return;
         }
-        if (slot == 51 && (state.currentPage + 1) * resultsPerPage < state.results.size()) {
+        if (slot == 51 && state.page.hasNext()) {
+            state.pageStarts.add(state.page.getNextCursor());
             state.currentPage++;
+            loadPage(state);
             displayResults(player, state);
             return;
         }
@@ -148,37 +159,27 @@ public class SearchGUI {
         }
         // Result slots
         if (slot < resultsPerPage) {
-            int resultIndex = state.currentPage * resultsPerPage + slot;
-            if (resultIndex < state.results.size()) {
-                Order order = state.results.get(resultIndex);
+            if (slot < state.page.getOrders().size()) {
+                Order order = state.page.getOrders().get(slot);
                 player.sendMessage(MessageUtils.colorize("&aOrder ID: " + order.getId() + " selected."));
                 // Implement further actions as needed
             }
         }
     }
 
-    // Helper: get all orders (replace with async DB call as needed)
-    private List<Order> getAllOrders() {
-        // Example: return plugin.getDatabaseManager().loadOrders().join();
-        return new ArrayList<>(); // Replace with actual order loading
-    }
-
-    // Helper: check if an order matches the search query
-    private boolean matchesQuery(Order order, String query) {
-        if (query == null || query.isEmpty()) return true;
-        String q = query.toLowerCase();
-        if (order.getCreatorUUID().toString().toLowerCase().contains(q)) return true;
-        if (order.getStatus().name().toLowerCase().contains(q)) return true;
-        if (order.getItemStack() != null && order.getItemStack().getType().name().toLowerCase().contains(q)) return true;
-        // Add custom/NBT item search as needed
-        return false;
-    }
-
-    // State for each player's search session
-    private static class SearchState {
+    // State for each player's search session, held by its window
+    private class SearchState extends GuiSession {
         int currentPage = 0;
         String query = "";
-        List<Order> results = new ArrayList<>();
+        // Cursor that starts each visited page; the first page starts at null
+        List<OrderCursor> pageStarts = new ArrayList<>();
+        OrderPage page = OrderPage.empty();
         Deque<String> history = new LinkedList<>();
+        ItemStack historyItem;
+
+        @Override
+        public void handleClick(Player player, InventoryClickEvent event) {
+            SearchGUI.this.handleClick(player, event, this);
+        }
     }
 }
\ No newline at end of file
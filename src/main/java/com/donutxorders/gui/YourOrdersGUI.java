@@ -3,18 +3,22 @@ package com.donutxorders.gui;
 import com.donutxorders.core.DonutxOrders;
 import com.donutxorders.managers.OrderManager;
 import com.donutxorders.models.Order;
+import com.donutxorders.models.OrderCursor;
+import com.donutxorders.models.OrderPage;
+import com.donutxorders.models.OrderQuery;
 import com.donutxorders.utils.ItemUtils;
 import com.donutxorders.utils.MessageUtils;
-import org.bukkit.Bukkit;
 import org.bukkit.Material;
 import org.bukkit.entity.Player;
 import org.bukkit.event.inventory.InventoryClickEvent;
-import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 public class YourOrdersGUI {
@@ -23,64 +27,78 @@ public class YourOrdersGUI {
     private final OrderManager orderManager;
     private final int size = 27;
     private final int ordersPerPage = 18;
+    private final Map<UUID, PageState> pageStates = new ConcurrentHashMap<>();
+    private static final String TITLE = MessageUtils.colorize("&eYour Orders");
+    private static final OrderIconCache ICONS = new OrderIconCache(YourOrdersGUI::renderIcon);
 
     public YourOrdersGUI(DonutxOrders plugin) {
         this.plugin = plugin;
         this.orderManager = plugin.getOrderManager();
     }
 
-    // Open the "Your Orders" GUI for a player
+    // Open the "Your Orders" GUI for a player. Pages are reached one step at a time
+    // from the current page; page 0 always starts over.
     public void openGUI(Player player, int page) {
-        List<Order> orders = getPlayerOrders(player.getUniqueId());
-        int maxPage = Math.max(0, (orders.size() - 1) / ordersPerPage);
-        int currentPage = Math.max(0, Math.min(page, maxPage));
-        Inventory inv = Bukkit.createInventory(player, size, MessageUtils.colorize("&eYour Orders - Page " + (currentPage + 1)));
+        PageState state = pageStates.computeIfAbsent(player.getUniqueId(), k -> new PageState());
+        if (page <= 0 || state.pageStarts.isEmpty()) {
+            state.pageStarts.clear();
+            state.pageStarts.add(null);
+            state.currentPage = 0;
+        } else if (page < state.pageStarts.size()) {
+            state.currentPage = page;
+            state.pageStarts.subList(page + 1, state.pageStarts.size()).clear();
+        } else if (state.page.hasNext()) {
+            state.pageStarts.add(state.page.getNextCursor());
+            state.currentPage = state.pageStarts.size() - 1;
+        }
+        state.page = getPlayerOrders(player.getUniqueId(), state.pageStarts.get(state.currentPage));
+
+        int currentPage = state.currentPage;
+        // The title stays fixed so the open window can be updated in place
+        GuiSession inv = state.begin(size, TITLE);
 
-        displayOrders(inv, orders, currentPage);
+        displayOrders(inv, state.page.getOrders());
 
         // Pagination controls
         if (currentPage > 0)
-            inv.setItem(21, ItemUtils.createGuiItem(Material.ARROW, "&aPrevious", Collections.singletonList("&7Previous page"), false));
-        if (currentPage < maxPage)
-            inv.setItem(23, ItemUtils.createGuiItem(Material.ARROW, "&aNext", Collections.singletonList("&7Next page"), false));
+            inv.set(21, GuiItems.control("your-orders.previous", Material.ARROW, "&aPrevious", "&7Previous page"));
+        // The page number is unbounded, so its indicator is built per render rather than shared
+        inv.set(22, ItemUtils.createGuiItem(Material.PAPER, "&ePage " + (currentPage + 1),
+                Collections.singletonList("&7Your orders, newest first"), false));
+        if (state.page.hasNext())
+            inv.set(23, GuiItems.control("your-orders.next", Material.ARROW, "&aNext", "&7Next page"));
 
         // Close button
-        inv.setItem(26, ItemUtils.createGuiItem(Material.BARRIER, "&cClose", Collections.singletonList("&7Close the menu"), false));
+        inv.set(26, GuiItems.control("close", Material.BARRIER, "&cClose", "&7Close the menu"));
 
-        player.openInventory(inv);
+        inv.show(player);
     }
 
-    // Display orders in the GUI
-    private void displayOrders(Inventory inv, List<Order> orders, int page) {
-        int start = page * ordersPerPage;
-        int end = Math.min(start + ordersPerPage, orders.size());
-        List<Order> pageOrders = orders.subList(start, end);
-
-        for (int i = 0; i < ordersPerPage; i++) {
-            int orderIndex = start + i;
-            if (orderIndex < end) {
-                Order order = pageOrders.get(i);
-                ItemStack item = ItemUtils.createGuiItem(
-                        order.getItemStack() != null ? order.getItemStack().getType() : Material.PAPER,
-                        "&eOrder #" + order.getId(),
-                        List.of(
-                                "&7Status: &f" + order.getStatus(),
-                                "&7Item: &f" + (order.getItemStack() != null ? order.getItemStack().getType().name() : "N/A"),
-                                "&7Qty: &f" + order.getQuantity(),
-                                "&7Delivered: &f" + order.getDeliveredAmount(),
-                                "&7Price: &f" + order.getPricePerItem(),
-                                "&aClick to collect items",
-                                "&cRight-click to cancel"
-                        ),
-                        false
-                );
-                inv.setItem(i, item);
-            } else {
-                inv.setItem(i, new ItemStack(Material.AIR));
-            }
+    // Display orders in the GUI; icons are re-rendered only for orders that changed
+    private void displayOrders(GuiSession inv, List<Order> pageOrders) {
+        for (int i = 0; i < pageOrders.size() && i < ordersPerPage; i++) {
+            inv.set(i, ICONS.get(pageOrders.get(i)));
         }
     }
 
+    // Owner's icon of an order, with its delivery progress and actions
+    private static ItemStack renderIcon(Order order) {
+        return ItemUtils.createGuiItem(
+                order.getItemStack() != null ? order.getItemStack().getType() : Material.PAPER,
+                "&eOrder #" + order.getId(),
+                List.of(
+                        "&7Status: &f" + order.getStatus(),
+                        "&7Item: &f" + (order.getItemStack() != null ? order.getItemStack().getType().name() : "N/A"),
+                        "&7Qty: &f" + order.getQuantity(),
+                        "&7Delivered: &f" + order.getDeliveredAmount(),
+                        "&7Price: &f" + order.getPricePerItem(),
+                        "&aClick to collect items",
+                        "&cRight-click to cancel"
+                ),
+                false
+        );
+    }
+
     // Handle order cancellation
     public void handleCancel(Player player, Order order) {
         if (order == null) {
@@ -90,7 +108,8 @@ public class YourOrdersGUI {
         orderManager.cancelOrder(player, order).thenAccept(success -> {
             if (success) {
                 player.sendMessage(MessageUtils.colorize("&aOrder cancelled successfully!"));
-                openGUI(player, 0);
+                // The window is updated on the main thread
+                plugin.runTask(() -> openGUI(player, 0));
             } else {
                 player.sendMessage(MessageUtils.colorize("&cFailed to cancel order."));
             }
@@ -111,6 +130,8 @@ public class YourOrdersGUI {
         ItemStack item = order.getItemStack();
         int amount = order.getQuantity() - order.getDeliveredAmount();
         if (item != null && amount > 0) {
+            // The order's item may be a shared template instance
+            item = item.clone();
             item.setAmount(amount);
             player.getInventory().addItem(item);
             player.sendMessage(MessageUtils.colorize("&aCollected " + amount + " items from order #" + order.getId()));
@@ -121,6 +142,11 @@ public class YourOrdersGUI {
 
     // Handle inventory click events (to be called from your listener)
     public void handleClick(Player player, InventoryClickEvent event, int page) {
+        handleClick(player, event, page, pageStates.get(player.getUniqueId()));
+    }
+
+    // Handle a click in the window of the given session
+    private void handleClick(Player player, InventoryClickEvent event, int page, PageState state) {
         int slot = event.getRawSlot();
         if (slot < 0 || slot >= size) return;
         event.setCancelled(true);
@@ -139,10 +165,9 @@ public class YourOrdersGUI {
         }
         // Order slots
         if (slot < ordersPerPage) {
-            List<Order> orders = getPlayerOrders(player.getUniqueId());
-            int orderIndex = page * ordersPerPage + slot;
-            if (orderIndex < orders.size()) {
-                Order order = orders.get(orderIndex);
+            List<Order> orders = state != null ? state.page.getOrders() : Collections.emptyList();
+            if (slot < orders.size()) {
+                Order order = orders.get(slot);
                 if (event.isRightClick()) {
                     handleCancel(player, order);
                 } else {
@@ -152,9 +177,31 @@ public class YourOrdersGUI {
         }
     }
 
-    // Helper: get all orders for a player (replace with async DB call as needed)
-    private List<Order> getPlayerOrders(UUID uuid) {
-        // Example: return plugin.getDatabaseManager().getPlayerOrders(uuid).join();
-        return List.of(); // Replace with actual order loading
+    // Current page number for a player, used to route clicks
+    public int getCurrentPage(Player player) {
+        PageState state = pageStates.get(player.getUniqueId());
+        return state != null ? state.currentPage : 0;
+    }
+
+    // Helper: fetch one page of a player's orders, newest first
+    private OrderPage getPlayerOrders(UUID uuid, OrderCursor cursor) {
+        OrderQuery query = new OrderQuery(ordersPerPage)
+                .creator(uuid)
+                .sortBy(OrderQuery.SortKey.CREATED, true)
+                .after(cursor);
+        return orderManager.queryOrders(query);
+    }
+
+    // Paging state for each player, held by its window
+    private class PageState extends GuiSession {
+        int currentPage = 0;
+        // Cursor that starts each visited page; the first page starts at null
+        List<OrderCursor> pageStarts = new ArrayList<>();
+        OrderPage page = OrderPage.empty();
+
+        @Override
+        public void handleClick(Player player, InventoryClickEvent event) {
+            YourOrdersGUI.this.handleClick(player, event, currentPage, this);
+        }
     }
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package com.donutxorders.integration;
 
+import com.donutxorders.utils.ItemFingerprint;
 import de.tr7zw.changeme.nbtapi.NBTItem;
 import org.bukkit.Bukkit;
 import org.bukkit.inventory.ItemStack;
@@ -14,10 +15,8 @@ public class NBTApiIntegration {
     // Compare NBT data of two ItemStacks
     public static boolean compareNBT(ItemStack a, ItemStack b) {
         if (a == null || b == null) return false;
-        if (!hasNBTApi()) return true; // fallback: treat as equal if NBTApi not present
-        NBTItem nbtA = new NBTItem(a);
-        NBTItem nbtB = new NBTItem(b);
-        return nbtA.toString().equals(nbtB.toString());
+        if (!hasNBTApi()) return a.isSimilar(b); // fallback: Bukkit's full meta compare
+        return ItemFingerprint.matches(a, b);
     }
 
     // Get a string value from NBT
@@ -0,0 +1,168 @@
+package com.donutxorders.managers;
+
+import com.donutxorders.collections.IntObjectHashMap;
+import com.donutxorders.models.Order;
+import com.donutxorders.models.OrderStatus;
+import com.donutxorders.utils.ItemFingerprint;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+
+/**
+ * Index of open orders by item variant and by material, each partition sorted by
+ * best price first, then oldest first. Finding the best orders for a stack costs
+ * O(log n) plus the number of orders returned.
+ *
+ * Entries are immutable snapshots of the sort key and item, so an order whose price
+ * or item changes must be re-indexed; {@link #index(Order)} does both insert and update.
+ */
+public class DeliveryIndex {
+
+    private static final Comparator<Entry> BEST_FIRST = Comparator
+            .comparingDouble((Entry entry) -> -entry.price)
+            .thenComparingLong(entry -> entry.createdTime)
+            .thenComparingInt(entry -> entry.orderId);
+
+    private final Map<ItemFingerprint, NavigableSet<Entry>> byFingerprint = new ConcurrentHashMap<>();
+    private final Map<Material, NavigableSet<Entry>> byMaterial = new ConcurrentHashMap<>();
+    // Current entry of each indexed order; only touched under the index lock
+    private final IntObjectHashMap<Entry> entries = new IntObjectHashMap<>();
+
+    /**
+     * Add, move or drop an order depending on whether it is still open
+     */
+    public synchronized void index(Order order) {
+        Entry previous = entries.get(order.getId());
+        if (!isOpen(order)) {
+            if (previous != null) {
+                remove(order.getId());
+            }
+            return;
+        }
+
+        ItemFingerprint fingerprint = order.getItemTemplate() != null
+                ? order.getItemTemplate().getFingerprint()
+                : ItemFingerprint.of(order.getItemStack());
+        Material material = order.getItemStack().getType();
+        if (previous != null) {
+            // Only a change to the sort key or the partitions moves the order
+            if (previous.price == order.getPricePerItem() && previous.createdTime == order.getCreatedTime()
+                    && previous.material == material && previous.fingerprint.equals(fingerprint)) {
+                return;
+            }
+            remove(order.getId());
+        }
+
+        Entry entry = new Entry(order.getId(), order.getPricePerItem(), order.getCreatedTime(), fingerprint, material);
+        entries.put(entry.orderId, entry);
+        byFingerprint.computeIfAbsent(fingerprint, key -> new ConcurrentSkipListSet<>(BEST_FIRST)).add(entry);
+        byMaterial.computeIfAbsent(entry.material, key -> new ConcurrentSkipListSet<>(BEST_FIRST)).add(entry);
+    }
+
+    /**
+     * Drop an order from the index
+     */
+    public synchronized void remove(int orderId) {
+        Entry entry = entries.remove(orderId);
+        if (entry == null) {
+            return;
+        }
+        removeFrom(byFingerprint, entry.fingerprint, entry);
+        removeFrom(byMaterial, entry.material, entry);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        byFingerprint.clear();
+        byMaterial.clear();
+    }
+
+    /**
+     * Best-paying open orders that accept exactly this item, resolved through the lookup
+     */
+    public List<Order> bestOrders(ItemStack item, int limit, IntFunction<Order> lookup) {
+        if (item == null) {
+            return new ArrayList<>();
+        }
+        // A partition holds every order with this fingerprint; each one is confirmed
+        // with a full compare so a colliding item cannot match it
+        ItemFingerprint fingerprint = ItemFingerprint.of(item);
+        return collect(byFingerprint.get(fingerprint), limit, lookup,
+                order -> ItemFingerprint.matches(item, fingerprint, order.getItemStack()));
+    }
+
+    /**
+     * Best-paying open orders for any variant of a material
+     */
+    public List<Order> bestOrders(Material material, int limit, IntFunction<Order> lookup) {
+        return collect(byMaterial.get(material), limit, lookup, order -> true);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Whether an order can still take deliveries
+     */
+    public static boolean isOpen(Order order) {
+        OrderStatus status = order.getStatus();
+        return (status == OrderStatus.PENDING || status == OrderStatus.IN_PROGRESS)
+                && order.getItemStack() != null
+                && !order.isFullyFulfilled();
+    }
+
+    // Walk a partition in order, skipping orders that closed since they were indexed
+    private List<Order> collect(NavigableSet<Entry> partition, int limit, IntFunction<Order> lookup, Predicate<Order> accepts) {
+        List<Order> orders = new ArrayList<>(Math.min(limit, 16));
+        if (partition == null) {
+            return orders;
+        }
+        for (Entry entry : partition) {
+            Order order = lookup.apply(entry.orderId);
+            if (order == null || !isOpen(order) || order.isExpired() || !accepts.test(order)) {
+                continue;
+            }
+            orders.add(order);
+            if (orders.size() >= limit) {
+                break;
+            }
+        }
+        return orders;
+    }
+
+    private static <K> void removeFrom(Map<K, NavigableSet<Entry>> partitions, K key, Entry entry) {
+        NavigableSet<Entry> partition = partitions.get(key);
+        if (partition != null) {
+            partition.remove(entry);
+            if (partition.isEmpty()) {
+                partitions.remove(key, partition);
+            }
+        }
+    }
+
+    private static final class Entry {
+        final int orderId;
+        final double price;
+        final long createdTime;
+        final ItemFingerprint fingerprint;
+        final Material material;
+
+        Entry(int orderId, double price, long createdTime, ItemFingerprint fingerprint, Material material) {
+            this.orderId = orderId;
+            this.price = price;
+            this.createdTime = createdTime;
+            this.fingerprint = fingerprint;
+            this.material = material;
+        }
+    }
+}
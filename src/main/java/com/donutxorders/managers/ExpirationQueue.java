@@ -0,0 +1,97 @@
+package com.donutxorders.managers;
+
+import com.donutxorders.collections.IntObjectHashMap;
+
+import java.util.Arrays;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deadline queue of order expirations. Only orders whose deadline has passed are
+ * ever touched, and deadlines already in the past (after downtime) are due on the
+ * first poll, so no expiry is lost.
+ *
+ * Cancelling is O(1): the order's live entry is dropped from the map and its queue
+ * entry is discarded when it comes due.
+ */
+public class ExpirationQueue {
+
+    // Live entry per order; queue entries that are not the live one are stale
+    private final IntObjectHashMap<Entry> live = new IntObjectHashMap<>();
+    private final DelayQueue<Entry> queue = new DelayQueue<>();
+
+    /**
+     * Schedule or move an order's expiry to the given wall-clock time
+     */
+    public synchronized void schedule(int orderId, long deadline) {
+        Entry previous = live.get(orderId);
+        if (previous != null && previous.deadline == deadline) {
+            return;
+        }
+        Entry entry = new Entry(orderId, deadline);
+        live.put(orderId, entry);
+        queue.add(entry);
+    }
+
+    /**
+     * Stop tracking an order
+     */
+    public synchronized void cancel(int orderId) {
+        live.remove(orderId);
+    }
+
+    /**
+     * Remove and return up to max orders whose deadline has passed, earliest first
+     */
+    public synchronized int[] pollDue(int max) {
+        // Each due order leaves the live map, so it bounds the result
+        int[] due = new int[Math.min(max, live.size())];
+        int count = 0;
+        while (count < max) {
+            Entry entry = queue.poll();
+            if (entry == null) {
+                break;
+            }
+            // Entries left behind by cancel or reschedule are no longer the live one
+            if (live.get(entry.orderId) == entry) {
+                live.remove(entry.orderId);
+                due[count++] = entry.orderId;
+            }
+        }
+        return count == due.length ? due : Arrays.copyOf(due, count);
+    }
+
+    public synchronized boolean isScheduled(int orderId) {
+        return live.containsKey(orderId);
+    }
+
+    public synchronized int size() {
+        return live.size();
+    }
+
+    public synchronized void clear() {
+        live.clear();
+        queue.clear();
+    }
+
+    private static final class Entry implements Delayed {
+        final int orderId;
+        final long deadline;
+
+        Entry(int orderId, long deadline) {
+            this.orderId = orderId;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(deadline - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(deadline, ((Entry) other).deadline);
+        }
+    }
+}
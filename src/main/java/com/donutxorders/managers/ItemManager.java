@@ -1,65 +1,76 @@
 package com.donutxorders.managers;
 
-import de.tr7zw.changeme.nbtapi.NBTItem;
+import com.donutxorders.database.ItemTemplateTable;
+import com.donutxorders.models.ItemTemplate;
+import com.donutxorders.models.Order;
+import com.donutxorders.utils.ItemCodec;
+import com.donutxorders.utils.ItemFingerprint;
 import org.bukkit.Material;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.ItemMeta;
 
-import java.util.Base64;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-
 public class ItemManager {
 
+    private final ItemCodec.MaterialTable materials;
+    private final ItemTemplateTable templates;
+
+    public ItemManager(ItemCodec.MaterialTable materials, ItemTemplateTable templates) {
+        this.materials = materials;
+        this.templates = templates;
+    }
+
+    // Get the shared immutable template for an item variant, interning it if new
+    public ItemTemplate intern(ItemStack item) {
+        if (item == null) return null;
+        return templates.intern(item);
+    }
+
+    // Get a template by id
+    public ItemTemplate getTemplate(int id) {
+        return templates.get(id);
+    }
+
+    // Whether an item is the variant of the given template
+    public boolean matchesTemplate(ItemStack item, ItemTemplate template) {
+        if (template == null) return false;
+        return ItemFingerprint.matches(item, template.getFingerprint(), template.getItem());
+    }
+
+    // Whether an item is what the order asks for; deliveries are accepted by this rule only
+    public boolean matchesOrder(ItemStack item, Order order) {
+        if (order.getItemTemplate() != null) {
+            return matchesTemplate(item, order.getItemTemplate());
+        }
+        return ItemFingerprint.matches(item, order.getItemStack());
+    }
+
     // Compare two items, including NBT and custom model data
     public boolean compareItems(ItemStack a, ItemStack b) {
-        if (a == null || b == null) return false;
-        if (a.getType() != b.getType()) return false;
-        ItemMeta metaA = a.getItemMeta();
-        ItemMeta metaB = b.getItemMeta();
-        if (metaA != null && metaB != null) {
-            if (metaA.hasCustomModelData() != metaB.hasCustomModelData()) return false;
-            if (metaA.hasCustomModelData() && metaB.hasCustomModelData()) {
-                if (metaA.getCustomModelData() != metaB.getCustomModelData()) return false;
-            }
-        } else if (metaA != null || metaB != null) {
-            return false;
-        }
-        // NBT comparison using NBTAPI
-        NBTItem nbtA = new NBTItem(a);
-        NBTItem nbtB = new NBTItem(b);
-        return nbtA.toString().equals(nbtB.toString());
+        return ItemFingerprint.matches(a, b);
     }
 
-    // Serialize an ItemStack to a Base64 string
-    public String serializeItem(ItemStack item) {
+    // Serialize an ItemStack with the compact binary codec
+    public byte[] serializeItem(ItemStack item) {
         try {
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-            ObjectOutputStream dataOutput = new ObjectOutputStream(outputStream);
-            dataOutput.writeObject(item);
-            dataOutput.close();
-            return Base64.getEncoder().encodeToString(outputStream.toByteArray());
+            return ItemCodec.encode(item, materials);
         } catch (Exception e) {
             return null;
         }
     }
 
-    // Deserialize an ItemStack from a Base64 string
-    public ItemStack deserializeItem(String data) {
+    // Deserialize an ItemStack from binary data, accepting the legacy Base64 format as well
+    public ItemStack deserializeItem(byte[] data) {
         try {
-            byte[] bytes = Base64.getDecoder().decode(data);
-            ObjectInputStream inputStream = new ObjectInputStream(new ByteArrayInputStream(bytes));
-            Object obj = inputStream.readObject();
-            inputStream.close();
-            if (obj instanceof ItemStack) {
-                return (ItemStack) obj;
-            }
+            return ItemCodec.decode(data, materials);
         } catch (Exception e) {
-            // Handle error
+            return null;
         }
-        return null;
+    }
+
+    // Deserialize an ItemStack from a legacy Base64 string
+    public ItemStack deserializeItem(String data) {
+        if (data == null) return null;
+        return ItemCodec.decodeLegacy(data);
     }
 
     // Validate if an item is allowed for orders
@@ -0,0 +1,119 @@
+package com.donutxorders.managers;
+
+import com.donutxorders.collections.IntIntHashMap;
+import com.donutxorders.models.Order;
+
+import java.util.Arrays;
+
+/**
+ * Columns of every order in the order book, maintained incrementally alongside the
+ * other indexes: an order's row is rewritten whenever it is re-indexed, and a
+ * removed row is filled by the last one. {@link #snapshot()} copies the columns
+ * into an {@link OrderSnapshot}, cached until the next change.
+ */
+public class OrderColumns {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final IntIntHashMap rowsById = new IntIntHashMap(OrderSnapshot.NONE);
+    private int size;
+    private int[] ids = new int[INITIAL_CAPACITY];
+    private double[] prices = new double[INITIAL_CAPACITY];
+    private int[] quantities = new int[INITIAL_CAPACITY];
+    private long[] createdTimes = new long[INITIAL_CAPACITY];
+    private byte[] statuses = new byte[INITIAL_CAPACITY];
+    private int[] materials = new int[INITIAL_CAPACITY];
+    private Order[] orders = new Order[INITIAL_CAPACITY];
+    private volatile OrderSnapshot snapshot;
+
+    /**
+     * Add an order or refresh its row
+     */
+    public synchronized void update(Order order) {
+        int row = rowsById.get(order.getId());
+        if (row == OrderSnapshot.NONE) {
+            ensureCapacity(size + 1);
+            row = size++;
+            rowsById.put(order.getId(), row);
+        }
+        ids[row] = order.getId();
+        prices[row] = order.getPricePerItem();
+        quantities[row] = order.getQuantity();
+        createdTimes[row] = order.getCreatedTime();
+        statuses[row] = OrderSnapshot.statusOf(order);
+        materials[row] = OrderSnapshot.materialOf(order);
+        orders[row] = order;
+        snapshot = null;
+    }
+
+    /**
+     * Drop an order's row
+     */
+    public synchronized void remove(int orderId) {
+        int row = rowsById.remove(orderId);
+        if (row == OrderSnapshot.NONE) {
+            return;
+        }
+        int last = --size;
+        if (row != last) {
+            ids[row] = ids[last];
+            prices[row] = prices[last];
+            quantities[row] = quantities[last];
+            createdTimes[row] = createdTimes[last];
+            statuses[row] = statuses[last];
+            materials[row] = materials[last];
+            orders[row] = orders[last];
+            rowsById.put(ids[row], row);
+        }
+        orders[last] = null;
+        snapshot = null;
+    }
+
+    public synchronized void clear() {
+        rowsById.clear();
+        Arrays.fill(orders, 0, size, null);
+        size = 0;
+        snapshot = null;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Immutable copy of the current columns
+     */
+    public OrderSnapshot snapshot() {
+        OrderSnapshot current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (snapshot == null) {
+                snapshot = new OrderSnapshot(size,
+                        Arrays.copyOf(ids, size),
+                        Arrays.copyOf(prices, size),
+                        Arrays.copyOf(quantities, size),
+                        Arrays.copyOf(createdTimes, size),
+                        Arrays.copyOf(statuses, size),
+                        Arrays.copyOf(materials, size),
+                        Arrays.copyOf(orders, size));
+            }
+            return snapshot;
+        }
+    }
+
+    private void ensureCapacity(int needed) {
+        if (needed <= ids.length) {
+            return;
+        }
+        int capacity = Math.max(needed, ids.length + (ids.length >> 1));
+        ids = Arrays.copyOf(ids, capacity);
+        prices = Arrays.copyOf(prices, capacity);
+        quantities = Arrays.copyOf(quantities, capacity);
+        createdTimes = Arrays.copyOf(createdTimes, capacity);
+        statuses = Arrays.copyOf(statuses, capacity);
+        materials = Arrays.copyOf(materials, capacity);
+        orders = Arrays.copyOf(orders, capacity);
+    }
+}
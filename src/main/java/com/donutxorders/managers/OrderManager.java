@@ -1,5 +1,7 @@
 package com.donutxorders.managers;
 
+import com.donutxorders.collections.ConcurrentIntObjectMap;
+import com.donutxorders.collections.IntHashSet;
 import com.donutxorders.core.DonutxOrders;
 import com.donutxorders.database.DatabaseManager;
 import com.donutxorders.models.Order;
@@ -10,6 +12,8 @@ import com.donutxorders.gui.YourOrdersGUI;
 import com.donutxorders.gui.NewOrderGUI;
 import com.donutxorders.gui.ItemSelectionGUI;
 import com.donutxorders.gui.SearchGUI;
+import com.donutxorders.models.OrderPage;
+import com.donutxorders.models.OrderQuery;
 import com.donutxorders.models.OrderStatus;
 import com.donutxorders.models.PlayerData;
 import org.bukkit.Bukkit;
@@ -19,6 +23,7 @@ import org.bukkit.inventory.ItemStack;
 
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 public class OrderManager {
@@ -32,9 +37,73 @@ private NewOrderGUI newOrderGUI;
 private ItemSelectionGUI itemSelectionGUI;
 private SearchGUI searchGUI;
 
+    // In-memory order book, the source of truth for reads; keyed by unboxed order id
+    private final ConcurrentIntObjectMap<Order> orderBook = new ConcurrentIntObjectMap<>();
+    // Orders changed in memory but not yet written to the database; guarded by itself
+    private final IntHashSet dirtyOrderIds = new IntHashSet();
+    private final AtomicInteger nextOrderId = new AtomicInteger(1);
+    // Immediate rewrites of an order after version conflicts before waiting for the next flush
+    private static final int MAX_CONFLICT_RETRIES = 3;
+    // Delay before expiring an order again that a delivery kept open
+    private static final long EXPIRATION_RETRY_MILLIS = 1000L;
+    // Open orders by item and material, best price first
+    private final DeliveryIndex deliveryIndex = new DeliveryIndex();
+    // Trigram index over the searchable text of every order
+    private final SearchIndex searchIndex = new SearchIndex();
+    // Columnar copy of the order book for sorting and filtering
+    private final OrderColumns columns = new OrderColumns();
+    // Sorted results shared by every player viewing the same filters
+    private final ResultCache resultCache;
+    // Parallel sorting and filtering of large lists, off the common pool
+    private final ParallelSorter parallelSorter;
+    // Expiry deadlines of pending orders
+    private final ExpirationQueue expirations = new ExpirationQueue();
+    private volatile long expirationMillis;
+
     public OrderManager(DonutxOrders plugin) {
         this.plugin = plugin;
         this.databaseManager = plugin.getDatabaseManager();
+        this.resultCache = new ResultCache(columns, searchIndex, orderBook::get,
+                plugin.getConfig().getInt("gui.result-cache-size", 64));
+        int sortThreads = plugin.getConfig().getInt("performance.parallel-threads", 0);
+        if (sortThreads <= 0) {
+            sortThreads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        }
+        this.parallelSorter = new ParallelSorter(sortThreads,
+                plugin.getConfig().getInt("performance.parallel-threshold", 50000));
+        loadExpirationSettings();
+    }
+
+    private void loadExpirationSettings() {
+        // Default: 1440 minutes = 24 hours
+        expirationMillis = plugin.getConfig().getLong("order-expiration-minutes", 1440L) * 60 * 1000;
+    }
+
+    /**
+     * Load every order from the database into the order book. If the orders cannot be
+     * read this throws and leaves the book as it was, so the plugin never runs on an
+     * empty book that would hand out ids already taken.
+     *
+     * @throws java.util.concurrent.CompletionException if the database read failed
+     */
+    public void loadOrderBook() {
+        List<Order> orders = databaseManager.loadOrders().join();
+        orderBook.clear();
+        synchronized (dirtyOrderIds) {
+            dirtyOrderIds.clear();
+        }
+        deliveryIndex.clear();
+        searchIndex.clear();
+        columns.clear();
+        int maxId = 0;
+        for (Order order : orders) {
+            orderBook.put(order.getId(), order);
+            reindex(order);
+            maxId = Math.max(maxId, order.getId());
+        }
+        nextOrderId.set(maxId + 1);
+        resultCache.clear();
+        plugin.getLogger().info("Loaded " + orderBook.size() + " orders into the order book");
     }
 
     // Create a new order
@@ -70,8 +139,12 @@ private SearchGUI searchGUI;
     expiresAt,
     OrderStatus.PENDING
 );
+            order.setItemTemplate(plugin.getItemManager().intern(itemStack));
+            order.setId(nextOrderId.getAndIncrement());
             boolean saved = databaseManager.saveOrder(order).join();
             if (saved) {
+                orderBook.put(order.getId(), order);
+                reindexIfPresent(order);
                 playerData.updateStats(1, 0, totalCost, 0);
                 playerData.saveToDatabase(plugin);
                 player.sendMessage("Order created successfully!");
@@ -94,26 +167,29 @@ private SearchGUI searchGUI;
                 deliverer.sendMessage("Order is expired or already fulfilled.");
                 return false;
             }
-            if (!deliveredItem.isSimilar(order.getItemStack())) {
+            if (!plugin.getItemManager().matchesOrder(deliveredItem, order)) {
                 deliverer.sendMessage("Delivered item does not match order.");
                 return false;
             }
-            int fulfillable = Math.min(amount, order.getQuantity() - order.getDeliveredAmount());
+            // Claim the amount first so concurrent deliverers can never over-fill the order
+            int fulfillable = order.tryReserve(amount);
             if (fulfillable <= 0) {
                 deliverer.sendMessage("Order already fulfilled.");
                 return false;
             }
 
-            // Payment distribution
+            // Payment distribution; release the reservation if it fails
             double payment = fulfillable * order.getPricePerItem();
-            // plugin.getEconomyManager().deposit(deliverer, payment);
+            // if (!plugin.getEconomyManager().deposit(deliverer.getUniqueId(), payment)) {
+            //     order.rollbackReservation(fulfillable);
+            //     return false;
+            // }
 
             // Update order
-            order.setDeliveredAmount(order.getDeliveredAmount() + fulfillable);
-            if (order.isFullyFulfilled()) {
+            if (order.commitReservation(fulfillable)) {
                 order.setStatus(OrderStatus.COMPLETED);
             }
-            databaseManager.updateOrder(order);
+            updateOrder(order);
 
             // Track delivery
             OrderItem orderItem = new OrderItem(
@@ -146,54 +222,109 @@ private SearchGUI searchGUI;
                 player.sendMessage("Order cannot be cancelled.");
                 return false;
             }
-            order.setStatus(OrderStatus.CANCELLED);
-            boolean updated = databaseManager.updateOrder(order).join();
-            if (updated) {
-                // Refund logic if needed
-                player.sendMessage("Order cancelled.");
-                return true;
-            } else {
-                player.sendMessage("Failed to cancel order.");
+            // Closing fails while a delivery holds a reservation, so it cannot be paid twice
+            if (!order.tryClose(OrderStatus.CANCELLED)) {
+                player.sendMessage("Order cannot be cancelled while a delivery is in progress.");
                 return false;
             }
+            updateOrder(order);
+            // Only the undelivered part is refunded; deliverers were paid for the rest.
+            // Economy providers are not thread-safe, so the deposit runs on the main thread.
+            double refund = order.getRefundAmount();
+            Bukkit.getScheduler().runTask(plugin, () -> {
+                if (refund > 0 && !plugin.getEconomyManager().deposit(order.getCreatorUUID(), refund)) {
+                    plugin.getLogger().warning("Refund of " + refund + " for cancelled order #" + order.getId() + " failed");
+                    player.sendMessage("Order cancelled, but the refund failed. Contact staff.");
+                    return;
+                }
+                player.sendMessage("Order cancelled.");
+            });
+            return true;
         });
     }
 
-    // Search orders by player, item, or status
+    // Search orders by material, display name, player, status or description
     public List<Order> searchOrders(List<Order> orders, String query) {
-        String q = query.toLowerCase();
+        IntHashSet hits = searchIndex.search(query);
         return orders.stream()
-                .filter(order ->
-                        order.getCreatorUUID().toString().toLowerCase().contains(q) ||
-                        (order.getItemStack() != null && order.getItemStack().getType().name().toLowerCase().contains(q)) ||
-                        order.getStatus().name().toLowerCase().contains(q)
-                )
+                .filter(order -> hits.contains(order.getId()))
                 .collect(Collectors.toList());
     }
 
-    // Sort orders by creation time, price, or quantity
+    // Sort orders by creation time, price, or quantity, ties by ID. Several keys,
+    // each optionally descending, can be given as in "price,-created".
     public List<Order> sortOrders(List<Order> orders, String sortBy) {
-        Comparator<Order> comparator;
-        switch (sortBy.toLowerCase()) {
-            case "price":
-                comparator = Comparator.comparingDouble(Order::getPricePerItem);
-                break;
-            case "quantity":
-                comparator = Comparator.comparingInt(Order::getQuantity);
-                break;
-            case "created":
-            default:
-                comparator = Comparator.comparingLong(Order::getCreatedTime);
-                break;
+        if (sortBy != null && (sortBy.indexOf(',') >= 0 || sortBy.trim().startsWith("-"))) {
+            return sortOrders(orders, comparatorFor(sortBy));
         }
-        return orders.stream().sorted(comparator).collect(Collectors.toList());
+        OrderSnapshot snapshot = OrderSnapshot.of(orders);
+        return snapshot.toOrders(snapshot.sort(snapshot.rows(), OrderQuery.SortKey.fromString(sortBy), false));
     }
 
     // Filter orders by status
     public List<Order> filterOrders(List<Order> orders, String status) {
-        return orders.stream()
-                .filter(order -> order.getStatus().name().equalsIgnoreCase(status))
-                .collect(Collectors.toList());
+        OrderStatus target = parseStatus(status);
+        if (target == null) {
+            return new ArrayList<>();
+        }
+        OrderSnapshot snapshot = OrderSnapshot.of(orders);
+        return snapshot.toOrders(snapshot.filter(snapshot.rows(), EnumSet.of(target), null));
+    }
+
+    /**
+     * Sorts orders with any comparator, stably. Lists above the parallel threshold
+     * are sorted on the dedicated sort pool.
+     */
+    public List<Order> sortOrders(List<Order> orders, Comparator<? super Order> comparator) {
+        return parallelSorter.sort(orders, comparator);
+    }
+
+    /**
+     * Filters orders, keeping their order. Lists above the parallel threshold are
+     * filtered on the dedicated sort pool.
+     */
+    public List<Order> filterOrders(List<Order> orders, java.util.function.Predicate<? super Order> predicate) {
+        return parallelSorter.filter(orders, predicate);
+    }
+
+    /**
+     * Filters and sorts the whole order history, completed, expired and cancelled
+     * orders included, for admin views such as /orders history.
+     */
+    public List<Order> getOrderHistory(java.util.function.Predicate<? super Order> filter, Comparator<? super Order> comparator) {
+        return parallelSorter.sort(parallelSorter.filter(orderBook.values(), filter), comparator);
+    }
+
+    /**
+     * Comparator for comma-separated sort keys, each optionally prefixed with '-' for
+     * descending, as in "price,-created". Remaining ties are broken by ID.
+     */
+    public static Comparator<Order> comparatorFor(String sortBy) {
+        Comparator<Order> comparator = null;
+        for (String part : sortBy.split(",")) {
+            String name = part.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            boolean descending = name.startsWith("-");
+            OrderQuery.SortKey key = OrderQuery.SortKey.fromString(descending ? name.substring(1) : name);
+            Comparator<Order> next = Comparator.comparingDouble(key::valueOf);
+            if (descending) {
+                next = next.reversed();
+            }
+            comparator = comparator == null ? next : comparator.thenComparing(next);
+        }
+        Comparator<Order> byId = Comparator.comparingInt(Order::getId);
+        return comparator == null ? byId : comparator.thenComparing(byId);
+    }
+
+    private static OrderStatus parseStatus(String status) {
+        for (OrderStatus value : OrderStatus.values()) {
+            if (value.name().equalsIgnoreCase(status)) {
+                return value;
+            }
+        }
+        return null;
     }
 
     // Cleanup expired orders
@@ -209,39 +340,335 @@ private SearchGUI searchGUI;
      * Returns all active (not expired or cancelled) orders.
      */
     public List<Order> getAllActiveOrders() {
-        List<Order> allOrders = databaseManager.getAllOrders();
         List<Order> active = new ArrayList<>();
-        for (Order order : allOrders) {
+        forEachActiveOrder(active::add);
+        return active;
+    }
+
+    /**
+     * Passes each active order to the consumer without copying the order book.
+     * The consumer must not create or remove orders.
+     */
+    public void forEachActiveOrder(java.util.function.Consumer<Order> consumer) {
+        orderBook.forEachValue(order -> {
             if (order.getStatus() == OrderStatus.PENDING || order.getStatus() == OrderStatus.IN_PROGRESS) {
-                active.add(order);
+                consumer.accept(order);
             }
-        }
-        return active;
+        });
+    }
+
+    /**
+     * Returns every order in the order book.
+     */
+    public List<Order> getAllOrders() {
+        return orderBook.values();
+    }
+
+    /**
+     * Returns the orders created by a player, newest first.
+     */
+    public List<Order> getPlayerOrders(UUID playerId) {
+        List<Order> orders = new ArrayList<>();
+        orderBook.forEachValue(order -> {
+            if (playerId.equals(order.getCreatorUUID())) {
+                orders.add(order);
+            }
+        });
+        orders.sort(Comparator.comparingLong(Order::getCreatedTime).reversed());
+        return orders;
     }
 
     /**
-     * Updates an order in the database.
+     * Returns one page of orders using keyset pagination. The sorted result is shared
+     * through the result cache, so a page is a binary search plus the page size.
+     */
+    public OrderPage queryOrders(OrderQuery query) {
+        return resultCache.page(query);
+    }
+
+    /**
+     * Cache of sorted query results, tagged with the order-book version.
+     */
+    public ResultCache getResultCache() {
+        return resultCache;
+    }
+
+    /**
+     * Returns the best-paying open orders that accept this exact item.
+     */
+    public List<Order> getBestOrdersFor(ItemStack item, int limit) {
+        return deliveryIndex.bestOrders(item, limit, orderBook::get);
+    }
+
+    /**
+     * Returns the best-paying open orders for any variant of a material.
+     */
+    public List<Order> getBestOrdersFor(Material material, int limit) {
+        return deliveryIndex.bestOrders(material, limit, orderBook::get);
+    }
+
+    /**
+     * Looks up an order by its ID.
+     */
+    public Order getOrder(int orderId) {
+        return orderBook.get(orderId);
+    }
+
+    /**
+     * Marks an order as changed. It is written to the database on the next flush.
      */
     public boolean updateOrder(Order order) {
-        return databaseManager.updateOrderSync(order);
+        if (!orderBook.containsKey(order.getId())) {
+            return false;
+        }
+        markDirty(order.getId());
+        return reindexIfPresent(order);
     }
 
     /**
      * Removes an order by its ID.
      */
     public boolean removeOrder(int orderId) {
-        return databaseManager.deleteOrderSync(String.valueOf(orderId));
+        Order removed = removeFromIndexes(orderId);
+        if (removed == null) {
+            return false;
+        }
+        databaseManager.deleteOrder(String.valueOf(orderId));
+        return true;
+    }
+
+    /**
+     * Removes completed, cancelled and expired orders created before the cutoff from
+     * the order book, then deletes them from the database in one write. Finished rows
+     * the book no longer holds are deleted as well.
+     *
+     * @return the number of order rows deleted, or -1 if the delete failed
+     */
+    public CompletableFuture<Integer> removeFinishedOrders(long cutoff) {
+        List<Integer> finished = new ArrayList<>();
+        orderBook.forEachValue(order -> {
+            OrderStatus status = order.getStatus();
+            if (status != OrderStatus.PENDING && status != OrderStatus.IN_PROGRESS && order.getCreatedAt() < cutoff) {
+                finished.add(order.getId());
+            }
+        });
+        for (int orderId : finished) {
+            removeFromIndexes(orderId);
+        }
+        return databaseManager.deleteFinishedOrders(finished, cutoff);
+    }
+
+    // Drop an order from the order book and every index, without touching the database
+    private Order removeFromIndexes(int orderId) {
+        Order removed = orderBook.remove(orderId);
+        dropIndexEntries(orderId);
+        return removed;
+    }
+
+    // Drop an order from every index and the dirty set; the book is left alone
+    private void dropIndexEntries(int orderId) {
+        synchronized (dirtyOrderIds) {
+            dirtyOrderIds.remove(orderId);
+        }
+        deliveryIndex.remove(orderId);
+        searchIndex.remove(orderId);
+        columns.remove(orderId);
+        expirations.cancel(orderId);
+        resultCache.recordChange(orderId);
+    }
+
+    /**
+     * Writes all dirty orders to the database in batches.
+     */
+    public CompletableFuture<Boolean> flushDirtyOrders() {
+        int[] dirty;
+        synchronized (dirtyOrderIds) {
+            if (dirtyOrderIds.isEmpty()) {
+                return CompletableFuture.completedFuture(true);
+            }
+            dirty = dirtyOrderIds.drain();
+        }
+        int batchSize = Math.max(1, plugin.getConfigManager().getInt("tasks.order-flush-batch-size", 500));
+
+        List<CompletableFuture<Boolean>> batches = new ArrayList<>();
+        List<Order> batch = new ArrayList<>(batchSize);
+        for (int orderId : dirty) {
+            Order order = orderBook.get(orderId);
+            if (order == null) {
+                continue;
+            }
+            batch.add(order);
+            if (batch.size() >= batchSize) {
+                batches.add(flushBatch(batch, 0));
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            batches.add(flushBatch(batch, 0));
+        }
+
+        return CompletableFuture.allOf(batches.toArray(new CompletableFuture[0]))
+                .thenApply(ignored -> batches.stream().allMatch(CompletableFuture::join));
+    }
+
+    // Write one batch, marking its orders dirty again if the write fails
+    private CompletableFuture<Boolean> flushBatch(List<Order> batch, int attempt) {
+        return databaseManager.updateOrders(batch).thenCompose(result -> {
+            if (!result.isSuccess()) {
+                for (Order order : batch) {
+                    if (orderBook.containsKey(order.getId())) {
+                        markDirty(order.getId());
+                    }
+                }
+                return CompletableFuture.completedFuture(false);
+            }
+            if (!result.hasConflicts()) {
+                return CompletableFuture.completedFuture(true);
+            }
+            return retryConflicts(result.getConflicts(), attempt);
+        });
+    }
+
+    // Another writer changed these rows; adopt its state and write the local changes on top
+    private CompletableFuture<Boolean> retryConflicts(List<Integer> orderIds, int attempt) {
+        List<CompletableFuture<Order>> refreshed = new ArrayList<>();
+        for (Integer orderId : orderIds) {
+            refreshed.add(databaseManager.loadOrder(orderId).thenApply(fresh -> {
+                Order order = orderBook.get(orderId);
+                if (order == null) {
+                    return null;
+                }
+                if (fresh == null) {
+                    // Deleted by another writer
+                    plugin.getLogger().warning("Order #" + orderId + " was deleted concurrently; dropping local changes");
+                    removeFromIndexes(orderId);
+                    return null;
+                }
+                order.rebase(fresh);
+                return reindexIfPresent(order) ? order : null;
+            }));
+        }
+        return CompletableFuture.allOf(refreshed.toArray(new CompletableFuture[0])).thenCompose(ignored -> {
+            List<Order> retry = new ArrayList<>();
+            for (CompletableFuture<Order> future : refreshed) {
+                Order order = future.join();
+                if (order != null) {
+                    retry.add(order);
+                }
+            }
+            if (retry.isEmpty()) {
+                return CompletableFuture.completedFuture(true);
+            }
+            if (attempt + 1 >= MAX_CONFLICT_RETRIES) {
+                // Leave them for the next flush rather than spin against a busy row
+                for (Order order : retry) {
+                    markDirty(order.getId());
+                }
+                return CompletableFuture.completedFuture(true);
+            }
+            return flushBatch(retry, attempt + 1);
+        });
     }
 
-    // --- ADDED: Stub methods to fix compilation errors ---
     public void saveAllData() {
-        // TODO: Implement saving all data
-        // Placeholder stub
+        flushDirtyOrders().join();
+    }
+
+    /**
+     * Stops the sort pool. Call once the plugin is disabling.
+     */
+    public void shutdown() {
+        parallelSorter.shutdown();
     }
 
     public void reload() {
-        // TODO: Implement reload logic
-        // Placeholder stub
+        // Expiry time may have changed; move every pending deadline
+        loadExpirationSettings();
+        orderBook.forEachValue(this::scheduleExpiration);
+    }
+
+    /**
+     * Time at which a pending order expires: its age limit, or its own expiry time if earlier.
+     */
+    public long getExpirationDeadline(Order order) {
+        long deadline = order.getCreatedAt() + expirationMillis;
+        if (order.getExpiresAt() > 0) {
+            deadline = Math.min(deadline, order.getExpiresAt());
+        }
+        return deadline;
+    }
+
+    public long getExpirationMillis() {
+        return expirationMillis;
+    }
+
+    /**
+     * Removes and returns up to max pending orders whose expiry deadline has passed.
+     */
+    public List<Order> pollExpiredOrders(int max) {
+        List<Order> expired = new ArrayList<>();
+        for (int orderId : expirations.pollDue(max)) {
+            Order order = orderBook.get(orderId);
+            if (order != null && order.getStatus() == OrderStatus.PENDING) {
+                expired.add(order);
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * Tries an expiry again shortly, for an order that could not be closed because a
+     * delivery held a reservation on it
+     */
+    public void deferExpiration(Order order) {
+        if (orderBook.containsKey(order.getId())) {
+            expirations.schedule(order.getId(), System.currentTimeMillis() + EXPIRATION_RETRY_MILLIS);
+            if (!orderBook.containsKey(order.getId())) {
+                // Removed meanwhile; its cleanup may have run before the schedule
+                expirations.cancel(order.getId());
+            }
+        }
+    }
+
+    private void markDirty(int orderId) {
+        synchronized (dirtyOrderIds) {
+            dirtyOrderIds.add(orderId);
+        }
+    }
+
+    // Bring every index up to date with an order that was added or changed
+    private void reindex(Order order) {
+        deliveryIndex.index(order);
+        searchIndex.index(order);
+        columns.update(order);
+        scheduleExpiration(order);
+        resultCache.recordChange(order.getId());
+    }
+
+    /**
+     * Reindexes an order that is in the book. Removal takes the order out of the book
+     * before it clears the indexes, so if the order is still in the book after the
+     * reindex, any removal clears after it; if it is gone, the removal may have
+     * cleared first and the entries just written are dropped again.
+     *
+     * @return false if the order was removed meanwhile
+     */
+    private boolean reindexIfPresent(Order order) {
+        reindex(order);
+        if (orderBook.containsKey(order.getId())) {
+            return true;
+        }
+        dropIndexEntries(order.getId());
+        return false;
+    }
+
+    // Only pending orders expire; anything else leaves the schedule
+    private void scheduleExpiration(Order order) {
+        if (order.getStatus() == OrderStatus.PENDING) {
+            expirations.schedule(order.getId(), getExpirationDeadline(order));
+        } else {
+            expirations.cancel(order.getId());
+        }
     }
 
     // GUI accessors (stubs)
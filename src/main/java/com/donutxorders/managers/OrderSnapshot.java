@@ -0,0 +1,327 @@
+package com.donutxorders.managers;
+
+import com.donutxorders.models.Order;
+import com.donutxorders.models.OrderQuery;
+import com.donutxorders.models.OrderStatus;
+import org.bukkit.Material;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Immutable columnar copy of a set of orders: ids, prices, quantities, creation
+ * times, status and material ordinals in parallel primitive arrays. Filters are
+ * loops over those columns and sorts permute row numbers, so the orders themselves
+ * are only touched when a result is turned back into a list.
+ */
+public final class OrderSnapshot {
+
+    // Ordinal stored for a missing status or item
+    static final int NONE = -1;
+    // Ranges this small are sorted by insertion
+    private static final int INSERTION_THRESHOLD = 24;
+
+    private final int size;
+    private final int[] ids;
+    private final double[] prices;
+    private final int[] quantities;
+    private final long[] createdTimes;
+    private final byte[] statuses;
+    private final int[] materials;
+    private final Order[] orders;
+
+    OrderSnapshot(int size, int[] ids, double[] prices, int[] quantities, long[] createdTimes,
+                  byte[] statuses, int[] materials, Order[] orders) {
+        this.size = size;
+        this.ids = ids;
+        this.prices = prices;
+        this.quantities = quantities;
+        this.createdTimes = createdTimes;
+        this.statuses = statuses;
+        this.materials = materials;
+        this.orders = orders;
+    }
+
+    /**
+     * Build a snapshot of the given orders, in iteration order
+     */
+    public static OrderSnapshot of(Collection<Order> source) {
+        int size = source.size();
+        int[] ids = new int[size];
+        double[] prices = new double[size];
+        int[] quantities = new int[size];
+        long[] createdTimes = new long[size];
+        byte[] statuses = new byte[size];
+        int[] materials = new int[size];
+        Order[] orders = new Order[size];
+        int row = 0;
+        for (Order order : source) {
+            ids[row] = order.getId();
+            prices[row] = order.getPricePerItem();
+            quantities[row] = order.getQuantity();
+            createdTimes[row] = order.getCreatedTime();
+            statuses[row] = statusOf(order);
+            materials[row] = materialOf(order);
+            orders[row] = order;
+            row++;
+        }
+        return new OrderSnapshot(size, ids, prices, quantities, createdTimes, statuses, materials, orders);
+    }
+
+    public int size() { return size; }
+    public int idAt(int row) { return ids[row]; }
+    public double priceAt(int row) { return prices[row]; }
+    public int quantityAt(int row) { return quantities[row]; }
+    public long createdTimeAt(int row) { return createdTimes[row]; }
+    public Order orderAt(int row) { return orders[row]; }
+
+    /**
+     * Sort value of a row, as {@link OrderQuery.SortKey#valueOf(Order)} returns it
+     */
+    public double sortValueAt(int row, OrderQuery.SortKey key) {
+        switch (key) {
+            case PRICE: return prices[row];
+            case QUANTITY: return quantities[row];
+            case CREATED:
+            default: return createdTimes[row];
+        }
+    }
+
+    /**
+     * Every row, in storage order
+     */
+    public int[] rows() {
+        int[] rows = new int[size];
+        for (int i = 0; i < size; i++) {
+            rows[i] = i;
+        }
+        return rows;
+    }
+
+    /**
+     * Rows whose status is one of the given ones (any status if empty) and whose
+     * material matches (any material if null), keeping their relative order
+     */
+    public int[] filter(int[] rows, Set<OrderStatus> allowed, Material material) {
+        int statusMask = 0;
+        for (OrderStatus status : allowed) {
+            statusMask |= 1 << status.ordinal();
+        }
+        boolean anyStatus = statusMask == 0;
+        int materialOrdinal = material != null ? material.ordinal() : NONE;
+
+        int[] result = new int[rows.length];
+        int count = 0;
+        for (int row : rows) {
+            int status = statuses[row];
+            if (!anyStatus && (status == NONE || (statusMask & (1 << status)) == 0)) {
+                continue;
+            }
+            if (material != null && materials[row] != materialOrdinal) {
+                continue;
+            }
+            result[count++] = row;
+        }
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+
+    /**
+     * The rows sorted by the key, then by order ID, in the given direction. This is
+     * the same order as {@link OrderQuery#comparator()}.
+     */
+    public int[] sort(int[] rows, OrderQuery.SortKey key, boolean descending) {
+        int n = rows.length;
+        int[] sortedRows = rows.clone();
+        // Sort keys and ids travel with their rows so comparisons read sequential memory
+        long[] keys = new long[n];
+        int[] keyIds = new int[n];
+        for (int i = 0; i < n; i++) {
+            int row = sortedRows[i];
+            keys[i] = sortableKey(key, row);
+            keyIds[i] = ids[row];
+        }
+        mergeSort(keys, keyIds, sortedRows, new long[n], new int[n], new int[n], 0, n);
+        if (descending) {
+            // IDs are unique, so reversing equals sorting with the reversed comparator
+            for (int i = 0, j = n - 1; i < j; i++, j--) {
+                int swap = sortedRows[i];
+                sortedRows[i] = sortedRows[j];
+                sortedRows[j] = swap;
+            }
+        }
+        return sortedRows;
+    }
+
+    /**
+     * The first k of the rows in {@link #sort} order, found with a bounded heap in
+     * O(n log k); only those k are ever ordered
+     */
+    public int[] topK(int[] rows, OrderQuery.SortKey key, boolean descending, int k) {
+        if (k >= rows.length) {
+            return sort(rows, key, descending);
+        }
+        if (k <= 0) {
+            return new int[0];
+        }
+        // Max-heap in page order: the root is the last of the k kept so far
+        long[] heapKeys = new long[k];
+        int[] heapIds = new int[k];
+        int[] heapRows = new int[k];
+        int size = 0;
+        for (int row : rows) {
+            long rowKey = sortableKey(key, row);
+            int id = ids[row];
+            if (size < k) {
+                int child = size++;
+                while (child > 0) {
+                    int parent = (child - 1) >>> 1;
+                    if (!before(heapKeys[parent], heapIds[parent], rowKey, id, descending)) {
+                        break;
+                    }
+                    heapKeys[child] = heapKeys[parent];
+                    heapIds[child] = heapIds[parent];
+                    heapRows[child] = heapRows[parent];
+                    child = parent;
+                }
+                heapKeys[child] = rowKey;
+                heapIds[child] = id;
+                heapRows[child] = row;
+            } else if (before(rowKey, id, heapKeys[0], heapIds[0], descending)) {
+                siftDown(heapKeys, heapIds, heapRows, size, rowKey, id, row, descending);
+            }
+        }
+
+        // Pop the root, the latest remaining, into the back of the result
+        int[] result = new int[size];
+        while (size > 0) {
+            result[size - 1] = heapRows[0];
+            size--;
+            if (size > 0) {
+                siftDown(heapKeys, heapIds, heapRows, size, heapKeys[size], heapIds[size], heapRows[size], descending);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The orders at the given rows, in row order
+     */
+    public List<Order> toOrders(int[] rows) {
+        List<Order> result = new ArrayList<>(rows.length);
+        for (int row : rows) {
+            result.add(orders[row]);
+        }
+        return result;
+    }
+
+    static byte statusOf(Order order) {
+        return order.getStatus() != null ? (byte) order.getStatus().ordinal() : NONE;
+    }
+
+    static int materialOf(Order order) {
+        return order.getItemStack() != null ? order.getItemStack().getType().ordinal() : NONE;
+    }
+
+    // Map the row's sort value onto a long with the same ordering as Double.compare
+    private long sortableKey(OrderQuery.SortKey key, int row) {
+        switch (key) {
+            case PRICE:
+                long bits = Double.doubleToLongBits(prices[row]);
+                return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+            case QUANTITY:
+                return quantities[row];
+            case CREATED:
+            default:
+                return createdTimes[row];
+        }
+    }
+
+    // Place an entry at the root of the heap and move it down to its position
+    private static void siftDown(long[] keys, int[] ids, int[] rows, int size,
+                                 long key, int id, int row, boolean descending) {
+        int parent = 0;
+        while (true) {
+            int child = 2 * parent + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && before(keys[child], ids[child], keys[child + 1], ids[child + 1], descending)) {
+                child++;
+            }
+            if (!before(key, id, keys[child], ids[child], descending)) {
+                break;
+            }
+            keys[parent] = keys[child];
+            ids[parent] = ids[child];
+            rows[parent] = rows[child];
+            parent = child;
+        }
+        keys[parent] = key;
+        ids[parent] = id;
+        rows[parent] = row;
+    }
+
+    // Whether the first position comes before the second in page order
+    private static boolean before(long key, int id, long otherKey, int otherId, boolean descending) {
+        return descending ? less(otherKey, otherId, key, id) : less(key, id, otherKey, otherId);
+    }
+
+    private static void mergeSort(long[] keys, int[] ids, int[] rows,
+                                  long[] keyBuffer, int[] idBuffer, int[] rowBuffer, int from, int to) {
+        if (to - from <= INSERTION_THRESHOLD) {
+            insertionSort(keys, ids, rows, from, to);
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        mergeSort(keys, ids, rows, keyBuffer, idBuffer, rowBuffer, from, mid);
+        mergeSort(keys, ids, rows, keyBuffer, idBuffer, rowBuffer, mid, to);
+        if (!less(keys[mid], ids[mid], keys[mid - 1], ids[mid - 1])) {
+            // Halves are already in order
+            return;
+        }
+
+        System.arraycopy(keys, from, keyBuffer, from, to - from);
+        System.arraycopy(ids, from, idBuffer, from, to - from);
+        System.arraycopy(rows, from, rowBuffer, from, to - from);
+        int left = from;
+        int right = mid;
+        for (int i = from; i < to; i++) {
+            int take;
+            if (left >= mid) {
+                take = right++;
+            } else if (right >= to || !less(keyBuffer[right], idBuffer[right], keyBuffer[left], idBuffer[left])) {
+                take = left++;
+            } else {
+                take = right++;
+            }
+            keys[i] = keyBuffer[take];
+            ids[i] = idBuffer[take];
+            rows[i] = rowBuffer[take];
+        }
+    }
+
+    private static void insertionSort(long[] keys, int[] ids, int[] rows, int from, int to) {
+        for (int i = from + 1; i < to; i++) {
+            long key = keys[i];
+            int id = ids[i];
+            int row = rows[i];
+            int j = i - 1;
+            while (j >= from && less(key, id, keys[j], ids[j])) {
+                keys[j + 1] = keys[j];
+                ids[j + 1] = ids[j];
+                rows[j + 1] = rows[j];
+                j--;
+            }
+            keys[j + 1] = key;
+            ids[j + 1] = id;
+            rows[j + 1] = row;
+        }
+    }
+
+    private static boolean less(long key, int id, long otherKey, int otherId) {
+        return key < otherKey || (key == otherKey && id < otherId);
+    }
+}
@@ -0,0 +1,179 @@
+package com.donutxorders.managers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * Sorts and filters large lists on a dedicated fork-join pool, so long admin and
+ * export scans neither run on a single thread nor compete with the common pool the
+ * CompletableFutures share. Lists smaller than the threshold are handled on the
+ * calling thread.
+ *
+ * Both operations are stable: equal elements keep their input order and a filtered
+ * list keeps the order of its input.
+ */
+public class ParallelSorter {
+
+    // Ranges this small are sorted or filtered by a single task
+    private static final int MIN_CHUNK = 8192;
+
+    private final ForkJoinPool pool;
+    private final int threshold;
+
+    public ParallelSorter(int parallelism, int threshold) {
+        this.threshold = Math.max(1, threshold);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.pool = new ForkJoinPool(Math.max(1, parallelism), forkJoinPool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+            thread.setName("DonutxOrders-Sort-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+    }
+
+    /**
+     * Sorted copy of the list
+     */
+    @SuppressWarnings("unchecked")
+    public <T> List<T> sort(List<T> list, Comparator<? super T> comparator) {
+        T[] array = (T[]) list.toArray();
+        if (isParallel(array.length)) {
+            pool.invoke(new SortTask<>(array, (T[]) new Object[array.length], 0, array.length, comparator));
+        } else {
+            Arrays.sort(array, comparator);
+        }
+        return new ArrayList<>(Arrays.asList(array));
+    }
+
+    /**
+     * Elements of the list that match the predicate, in list order
+     */
+    @SuppressWarnings("unchecked")
+    public <T> List<T> filter(List<T> list, Predicate<? super T> predicate) {
+        T[] array = (T[]) list.toArray();
+        boolean[] keep = new boolean[array.length];
+        if (isParallel(array.length)) {
+            pool.invoke(new FilterTask<>(array, keep, 0, array.length, predicate));
+        } else {
+            for (int i = 0; i < array.length; i++) {
+                keep[i] = predicate.test(array[i]);
+            }
+        }
+        // The predicate is the expensive part; gathering in order is one sequential pass
+        List<T> result = new ArrayList<>();
+        for (int i = 0; i < array.length; i++) {
+            if (keep[i]) {
+                result.add(array[i]);
+            }
+        }
+        return result;
+    }
+
+    public int getThreshold() {
+        return threshold;
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * Stop the pool, letting running sorts finish
+     */
+    public void shutdown() {
+        pool.shutdown();
+        try {
+            pool.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private boolean isParallel(int size) {
+        return size >= threshold && pool.getParallelism() > 1;
+    }
+
+    // Merge sort: chunks are sorted with TimSort, then merged pairwise, left first on ties
+    private static final class SortTask<T> extends RecursiveAction {
+        private final T[] array;
+        private final T[] buffer;
+        private final int from;
+        private final int to;
+        private final Comparator<? super T> comparator;
+
+        SortTask(T[] array, T[] buffer, int from, int to, Comparator<? super T> comparator) {
+            this.array = array;
+            this.buffer = buffer;
+            this.from = from;
+            this.to = to;
+            this.comparator = comparator;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= MIN_CHUNK) {
+                Arrays.sort(array, from, to, comparator);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new SortTask<>(array, buffer, from, mid, comparator),
+                    new SortTask<>(array, buffer, mid, to, comparator));
+            merge(mid);
+        }
+
+        private void merge(int mid) {
+            if (comparator.compare(array[mid - 1], array[mid]) <= 0) {
+                // Halves are already in order
+                return;
+            }
+            System.arraycopy(array, from, buffer, from, to - from);
+            int left = from;
+            int right = mid;
+            for (int i = from; i < to; i++) {
+                if (right >= to || (left < mid && comparator.compare(buffer[right], buffer[left]) >= 0)) {
+                    array[i] = buffer[left++];
+                } else {
+                    array[i] = buffer[right++];
+                }
+            }
+        }
+    }
+
+    // Evaluates the predicate over a range, splitting it across the pool
+    private static final class FilterTask<T> extends RecursiveAction {
+        private final T[] array;
+        private final boolean[] keep;
+        private final int from;
+        private final int to;
+        private final Predicate<? super T> predicate;
+
+        FilterTask(T[] array, boolean[] keep, int from, int to, Predicate<? super T> predicate) {
+            this.array = array;
+            this.keep = keep;
+            this.from = from;
+            this.to = to;
+            this.predicate = predicate;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= MIN_CHUNK) {
+                for (int i = from; i < to; i++) {
+                    keep[i] = predicate.test(array[i]);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new FilterTask<>(array, keep, from, mid, predicate),
+                    new FilterTask<>(array, keep, mid, to, predicate));
+        }
+    }
+}
@@ -0,0 +1,383 @@
+package com.donutxorders.managers;
+
+import com.donutxorders.collections.IntHashSet;
+import com.donutxorders.models.Order;
+import com.donutxorders.models.OrderCursor;
+import com.donutxorders.models.OrderPage;
+import com.donutxorders.models.OrderQuery;
+import com.donutxorders.models.OrderStatus;
+import org.bukkit.Material;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+
+/**
+ * Materialized query results shared by every player: for each combination of
+ * filters, search text and sort order, the ids of the matching orders in page
+ * order. Pages are cut from the cached ids, so players paging the same view share
+ * one filter-and-sort pass.
+ *
+ * A result may be a prefix: a build only orders the first few pages with a top-k
+ * pass, and grows the prefix when a player pages past it.
+ *
+ * Results are tagged with the order-book version. Each change bumps the version and
+ * records the order id in a change log; a stale result is patched by re-checking
+ * only the orders changed since its version, and rebuilt once the log no longer
+ * reaches back that far.
+ */
+public class ResultCache {
+
+    // Changes remembered for patching; older results are rebuilt
+    private static final int CHANGE_LOG_SIZE = 4096;
+    // Pages ordered by the first build of a view
+    private static final int INITIAL_PAGES = 4;
+
+    private final OrderColumns columns;
+    private final SearchIndex searchIndex;
+    private final IntFunction<Order> lookup;
+    private final Map<Key, Result> results;
+
+    private final int[] changeLog = new int[CHANGE_LOG_SIZE];
+    private long version;
+    // Results older than this predate a reload and cannot be patched
+    private long floorVersion;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong patches = new AtomicLong();
+    private final AtomicLong rebuilds = new AtomicLong();
+
+    public ResultCache(OrderColumns columns, SearchIndex searchIndex, IntFunction<Order> lookup, int maxEntries) {
+        this.columns = columns;
+        this.searchIndex = searchIndex;
+        this.lookup = lookup;
+        int capacity = Math.max(1, maxEntries);
+        // Least recently used views are dropped first
+        this.results = new LinkedHashMap<Key, Result>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Result> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Record that an order was added, changed or removed. Call after the order book
+     * and indexes reflect the change.
+     */
+    public synchronized void recordChange(int orderId) {
+        version++;
+        changeLog[(int) (version % CHANGE_LOG_SIZE)] = orderId;
+    }
+
+    /**
+     * Drop every result, after the order book was reloaded
+     */
+    public void clear() {
+        synchronized (this) {
+            version++;
+            floorVersion = version;
+        }
+        synchronized (results) {
+            results.clear();
+        }
+    }
+
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    /**
+     * One page of the query's results, starting after its cursor
+     */
+    public OrderPage page(OrderQuery query) {
+        int pageSize = query.getPageSize();
+        Result result = resolve(query, pageSize * INITIAL_PAGES + 1);
+        int index = result.indexAfter(query.getCursor(), query.isDescending());
+        // One extra order tells whether a next page exists
+        while (!result.covers(index + pageSize + 1)) {
+            result = resolve(query, Math.max(result.ids.length * 2, index + pageSize + 1));
+            index = result.indexAfter(query.getCursor(), query.isDescending());
+        }
+        List<Order> orders = new ArrayList<>(Math.min(query.getPageSize(), result.ids.length - index));
+        while (index < result.ids.length && orders.size() < query.getPageSize()) {
+            Order order = lookup.apply(result.ids[index++]);
+            if (order != null) {
+                orders.add(order);
+            }
+        }
+        if ((result.complete && index >= result.ids.length) || orders.isEmpty()) {
+            return new OrderPage(orders, null);
+        }
+        return new OrderPage(orders, query.cursorAt(orders.get(orders.size() - 1)));
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getPatchCount() {
+        return patches.get();
+    }
+
+    public long getRebuildCount() {
+        return rebuilds.get();
+    }
+
+    // Current result for the query holding at least the first 'needed' orders: cached, patched or rebuilt
+    private Result resolve(OrderQuery query, int needed) {
+        Key key = new Key(query);
+        Result cached;
+        synchronized (results) {
+            cached = results.get(key);
+        }
+
+        long current;
+        IntHashSet changed = null;
+        synchronized (this) {
+            current = version;
+            if (cached != null && cached.version == current && cached.covers(needed)) {
+                hits.incrementAndGet();
+                return cached;
+            }
+            if (cached != null && cached.version < current && cached.version >= floorVersion
+                    && current - cached.version <= CHANGE_LOG_SIZE) {
+                changed = new IntHashSet((int) (current - cached.version));
+                for (long v = cached.version + 1; v <= current; v++) {
+                    changed.add(changeLog[(int) (v % CHANGE_LOG_SIZE)]);
+                }
+            }
+        }
+
+        // The version is read before the orders, so a change racing with this pass is
+        // logged after it and re-applied by the next patch
+        Result fresh = null;
+        if (changed != null) {
+            fresh = patch(cached, changed, query, current);
+            patches.incrementAndGet();
+        }
+        if (fresh == null || !fresh.covers(needed)) {
+            fresh = build(query, current, needed);
+            rebuilds.incrementAndGet();
+        }
+        synchronized (results) {
+            Result existing = results.get(key);
+            if (existing == null || existing.version < fresh.version
+                    || (existing.version == fresh.version && fresh.ids.length > existing.ids.length)) {
+                results.put(key, fresh);
+            }
+        }
+        return fresh;
+    }
+
+    // Filter the whole order book on the columnar snapshot and order the first 'needed' matches
+    private Result build(OrderQuery query, long version, int needed) {
+        OrderSnapshot snapshot = columns.snapshot();
+        int[] rows = snapshot.filter(snapshot.rows(), query.getStatuses(), query.getMaterial());
+        if (query.getCreator() != null || !query.getSearch().isEmpty()) {
+            IntHashSet searchHits = query.getSearch().isEmpty() ? null : searchIndex.search(query.getSearch());
+            int count = 0;
+            for (int row : rows) {
+                if (query.getCreator() != null && !query.getCreator().equals(snapshot.orderAt(row).getCreatorUUID())) {
+                    continue;
+                }
+                if (searchHits != null && !searchHits.contains(snapshot.idAt(row))) {
+                    continue;
+                }
+                rows[count++] = row;
+            }
+            rows = Arrays.copyOf(rows, count);
+        }
+        // Past half the matches a full sort is cheaper than a top-k pass
+        boolean complete = needed * 2 >= rows.length;
+        rows = complete
+                ? snapshot.sort(rows, query.getSortKey(), query.isDescending())
+                : snapshot.topK(rows, query.getSortKey(), query.isDescending(), needed);
+
+        int[] ids = new int[rows.length];
+        double[] values = new double[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            ids[i] = snapshot.idAt(rows[i]);
+            values[i] = snapshot.sortValueAt(rows[i], query.getSortKey());
+        }
+        if (complete || ids.length == 0) {
+            return new Result(version, ids, values);
+        }
+        return new Result(version, ids, values, values[ids.length - 1], ids[ids.length - 1]);
+    }
+
+    // Drop the changed orders, re-check each against the query and merge the matches back in
+    private Result patch(Result cached, IntHashSet changed, OrderQuery query, long version) {
+        int n = cached.ids.length;
+        int[] keptIds = new int[n];
+        double[] keptValues = new double[n];
+        int kept = 0;
+        for (int i = 0; i < n; i++) {
+            if (!changed.contains(cached.ids[i])) {
+                keptIds[kept] = cached.ids[i];
+                keptValues[kept] = cached.values[i];
+                kept++;
+            }
+        }
+
+        List<Order> added = new ArrayList<>();
+        changed.forEach(orderId -> {
+            Order order = lookup.apply(orderId);
+            if (order != null && query.matchesFilters(order)
+                    && (query.getSearch().isEmpty() || searchIndex.matches(orderId, query.getSearch()))
+                    && cached.holds(query.getSortKey().valueOf(order), orderId, query.isDescending())) {
+                added.add(order);
+            }
+        });
+        added.sort(query.comparator());
+
+        int[] ids = new int[kept + added.size()];
+        double[] values = new double[ids.length];
+        int left = 0;
+        int right = 0;
+        for (int out = 0; out < ids.length; out++) {
+            boolean takeKept;
+            if (right >= added.size()) {
+                takeKept = true;
+            } else if (left >= kept) {
+                takeKept = false;
+            } else {
+                Order order = added.get(right);
+                takeKept = compare(keptValues[left], keptIds[left],
+                        query.getSortKey().valueOf(order), order.getId(), query.isDescending()) < 0;
+            }
+            if (takeKept) {
+                ids[out] = keptIds[left];
+                values[out] = keptValues[left];
+                left++;
+            } else {
+                Order order = added.get(right);
+                ids[out] = order.getId();
+                values[out] = query.getSortKey().valueOf(order);
+                right++;
+            }
+        }
+        return cached.complete
+                ? new Result(version, ids, values)
+                : new Result(version, ids, values, cached.lastValue, cached.lastId);
+    }
+
+    // Page order of two positions: sort value, then ID, in the query direction
+    private static int compare(double value, int id, double otherValue, int otherId, boolean descending) {
+        int cmp = Double.compare(value, otherValue);
+        if (cmp == 0) {
+            cmp = Integer.compare(id, otherId);
+        }
+        return descending ? -cmp : cmp;
+    }
+
+    /**
+     * Matching order ids in page order with their sort values, as of one version.
+     * A prefix result holds exactly the matches up to and including a fixed last
+     * position; patches keep that position, so the prefix stays exact.
+     */
+    private static final class Result {
+        final long version;
+        final int[] ids;
+        final double[] values;
+        final boolean complete;
+        final double lastValue;
+        final int lastId;
+
+        // Every match
+        Result(long version, int[] ids, double[] values) {
+            this(version, ids, values, true, 0, 0);
+        }
+
+        // The matches up to the given last position
+        Result(long version, int[] ids, double[] values, double lastValue, int lastId) {
+            this(version, ids, values, false, lastValue, lastId);
+        }
+
+        private Result(long version, int[] ids, double[] values, boolean complete, double lastValue, int lastId) {
+            this.version = version;
+            this.ids = ids;
+            this.values = values;
+            this.complete = complete;
+            this.lastValue = lastValue;
+            this.lastId = lastId;
+        }
+
+        // Whether the first 'needed' matches are known
+        boolean covers(int needed) {
+            return complete || ids.length >= needed;
+        }
+
+        // Whether a match at this position belongs in the result
+        boolean holds(double value, int id, boolean descending) {
+            return complete || compare(value, id, lastValue, lastId, descending) <= 0;
+        }
+
+        // Index of the first position strictly after the cursor
+        int indexAfter(OrderCursor cursor, boolean descending) {
+            if (cursor == null) {
+                return 0;
+            }
+            int low = 0;
+            int high = ids.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (compare(values[mid], ids[mid], cursor.getSortValue(), cursor.getOrderId(), descending) > 0) {
+                    high = mid;
+                } else {
+                    low = mid + 1;
+                }
+            }
+            return low;
+        }
+    }
+
+    /**
+     * Everything in a query except its page size and cursor
+     */
+    private static final class Key {
+        final Set<OrderStatus> statuses;
+        final Material material;
+        final UUID creator;
+        final String search;
+        final OrderQuery.SortKey sortKey;
+        final boolean descending;
+        final int hash;
+
+        Key(OrderQuery query) {
+            this.statuses = query.getStatuses().isEmpty() ? EnumSet.noneOf(OrderStatus.class) : EnumSet.copyOf(query.getStatuses());
+            this.material = query.getMaterial();
+            this.creator = query.getCreator();
+            this.search = query.getSearch();
+            this.sortKey = query.getSortKey();
+            this.descending = query.isDescending();
+            this.hash = Objects.hash(statuses, material, creator, search, sortKey, descending);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return descending == other.descending
+                    && sortKey == other.sortKey
+                    && material == other.material
+                    && statuses.equals(other.statuses)
+                    && Objects.equals(creator, other.creator)
+                    && search.equals(other.search);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.donutxorders.managers;
+
+import com.donutxorders.collections.IntHashSet;
+import com.donutxorders.collections.IntObjectHashMap;
+import com.donutxorders.models.Order;
+import org.bukkit.Bukkit;
+import org.bukkit.ChatColor;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Incremental trigram index over the searchable text of each order: material,
+ * display name, creator name and UUID, status and description. A substring query
+ * intersects the posting lists of its trigrams, smallest first, and only the
+ * surviving candidates are checked against their text.
+ *
+ * Queries shorter than three characters have no trigram and fall back to checking
+ * every indexed document.
+ */
+public class SearchIndex {
+
+    // Separates fields so no trigram spans two of them
+    private static final char FIELD_SEPARATOR = '\u0000';
+
+    // Order ids are kept unboxed; searches share the read lock, updates take the write lock
+    private final IntObjectHashMap<String> documents = new IntObjectHashMap<>();
+    private final Map<Long, IntHashSet> postings = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // Creator names by UUID; looking one up can hit the disk, and reindexing is hot
+    private final Map<UUID, String> creatorNames = new ConcurrentHashMap<>();
+
+    /**
+     * Add or refresh an order. Only trigrams that changed are touched.
+     */
+    public void index(Order order) {
+        String document = documentOf(order);
+        lock.writeLock().lock();
+        try {
+            String previous = documents.put(order.getId(), document);
+            if (document.equals(previous)) {
+                return;
+            }
+            Set<Long> oldGrams = previous != null ? trigrams(previous) : Collections.emptySet();
+            Set<Long> newGrams = trigrams(document);
+            for (Long gram : oldGrams) {
+                if (!newGrams.contains(gram)) {
+                    removePosting(gram, order.getId());
+                }
+            }
+            for (Long gram : newGrams) {
+                if (!oldGrams.contains(gram)) {
+                    postings.computeIfAbsent(gram, key -> new IntHashSet(4)).add(order.getId());
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Drop an order from the index
+     */
+    public void remove(int orderId) {
+        lock.writeLock().lock();
+        try {
+            String previous = documents.remove(orderId);
+            if (previous == null) {
+                return;
+            }
+            for (Long gram : trigrams(previous)) {
+                removePosting(gram, orderId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            documents.clear();
+            postings.clear();
+            creatorNames.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * IDs of the orders whose searchable text contains the query, case-insensitively
+     */
+    public IntHashSet search(String query) {
+        String needle = query.toLowerCase(Locale.ROOT);
+        lock.readLock().lock();
+        try {
+            return searchLocked(needle);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Whether one order's searchable text contains the query, case-insensitively
+     */
+    public boolean matches(int orderId, String query) {
+        String needle = query.toLowerCase(Locale.ROOT);
+        lock.readLock().lock();
+        try {
+            String document = documents.get(orderId);
+            return document != null && document.contains(needle);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private IntHashSet searchLocked(String needle) {
+        IntHashSet result = new IntHashSet();
+        if (needle.isEmpty()) {
+            documents.forEach((orderId, document) -> result.add(orderId));
+            return result;
+        }
+        if (needle.length() < 3) {
+            documents.forEach((orderId, document) -> {
+                if (document.contains(needle)) {
+                    result.add(orderId);
+                }
+            });
+            return result;
+        }
+
+        List<IntHashSet> lists = new ArrayList<>();
+        for (Long gram : trigrams(needle)) {
+            IntHashSet posting = postings.get(gram);
+            if (posting == null) {
+                return result;
+            }
+            lists.add(posting);
+        }
+        lists.sort((a, b) -> Integer.compare(a.size(), b.size()));
+
+        // Intersect from the rarest trigram, then confirm the substring on the few survivors
+        lists.get(0).forEach(orderId -> {
+            for (int i = 1; i < lists.size(); i++) {
+                if (!lists.get(i).contains(orderId)) {
+                    return;
+                }
+            }
+            String document = documents.get(orderId);
+            if (document != null && document.contains(needle)) {
+                result.add(orderId);
+            }
+        });
+        return result;
+    }
+
+    private void removePosting(Long gram, int orderId) {
+        IntHashSet posting = postings.get(gram);
+        if (posting != null) {
+            posting.remove(orderId);
+            if (posting.isEmpty()) {
+                postings.remove(gram);
+            }
+        }
+    }
+
+    /**
+     * Lowercased searchable text of an order
+     */
+    String documentOf(Order order) {
+        StringBuilder text = new StringBuilder(96);
+        ItemStack item = order.getItemStack();
+        if (item != null) {
+            text.append(item.getType().name()).append(FIELD_SEPARATOR);
+            ItemMeta meta = item.hasItemMeta() ? item.getItemMeta() : null;
+            if (meta != null && meta.hasDisplayName()) {
+                text.append(ChatColor.stripColor(meta.getDisplayName())).append(FIELD_SEPARATOR);
+            }
+        }
+        if (order.getCreatorUUID() != null) {
+            text.append(order.getCreatorUUID()).append(FIELD_SEPARATOR);
+            String name = creatorName(order.getCreatorUUID());
+            if (name != null) {
+                text.append(name).append(FIELD_SEPARATOR);
+            }
+        }
+        if (order.getStatus() != null) {
+            text.append(order.getStatus().name()).append(FIELD_SEPARATOR);
+        }
+        if (order.getDescription() != null) {
+            text.append(order.getDescription());
+        }
+        return text.toString().toLowerCase(Locale.ROOT);
+    }
+
+    // Name of a creator, looked up once per UUID; unknown names are retried next time
+    private String creatorName(UUID creatorId) {
+        String name = creatorNames.get(creatorId);
+        if (name == null) {
+            OfflinePlayer creator = Bukkit.getOfflinePlayer(creatorId);
+            name = creator != null ? creator.getName() : null;
+            if (name != null) {
+                creatorNames.put(creatorId, name);
+            }
+        }
+        return name;
+    }
+
+    // Distinct trigrams of the text, each packed into a long
+    private static Set<Long> trigrams(String text) {
+        Set<Long> grams = new HashSet<>();
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            char a = text.charAt(i);
+            char b = text.charAt(i + 1);
+            char c = text.charAt(i + 2);
+            if (a == FIELD_SEPARATOR || b == FIELD_SEPARATOR || c == FIELD_SEPARATOR) {
+                continue;
+            }
+            grams.add(((long) a << 32) | ((long) b << 16) | c);
+        }
+        return grams;
+    }
+}
@@ -0,0 +1,85 @@
+package com.donutxorders.models;
+
+import com.donutxorders.utils.ItemFingerprint;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.Arrays;
+
+/**
+ * An interned item variant shared by every order that requests it. Templates are
+ * immutable: the stored item always has amount 1 and is never handed out for
+ * modification.
+ */
+public final class ItemTemplate {
+
+    private final int id;
+    private final long hash;
+    private final byte[] data;
+    private final ItemStack item;
+    private volatile ItemFingerprint fingerprint;
+
+    public ItemTemplate(int id, long hash, byte[] data, ItemStack item) {
+        this.id = id;
+        this.hash = hash;
+        this.data = data;
+        this.item = item;
+    }
+
+    /**
+     * Database id, or 0 if the template could not be interned
+     */
+    public int getId() { return id; }
+
+    /**
+     * Content hash of the canonical encoded item
+     */
+    public long getHash() { return hash; }
+
+    public Material getMaterial() { return item.getType(); }
+
+    /**
+     * Shared item instance. Callers must not modify it; use {@link #createItem(int)}.
+     */
+    public ItemStack getItem() { return item; }
+
+    /**
+     * Fingerprint of the item, computed on first use
+     */
+    public ItemFingerprint getFingerprint() {
+        ItemFingerprint result = fingerprint;
+        if (result == null) {
+            result = ItemFingerprint.of(item);
+            fingerprint = result;
+        }
+        return result;
+    }
+
+    /**
+     * Create a modifiable copy of the item with the given amount
+     */
+    public ItemStack createItem(int amount) {
+        ItemStack copy = item.clone();
+        copy.setAmount(amount);
+        return copy;
+    }
+
+    /**
+     * Whether the encoded content matches the given data
+     */
+    public boolean hasData(byte[] other) {
+        return Arrays.equals(data, other);
+    }
+
+    /**
+     * Copy of the canonical encoded item
+     */
+    public byte[] getData() { return data.clone(); }
+
+    /**
+     * Whether both templates stand for the same interned variant
+     */
+    public boolean isSameAs(ItemTemplate other) {
+        return other != null && (other == this || (id > 0 && id == other.id));
+    }
+}
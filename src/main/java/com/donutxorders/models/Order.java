@@ -5,7 +5,10 @@ import org.bukkit.inventory.ItemStack;
 import java.io.Serializable;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.EnumSet;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import com.donutxorders.models.OrderStatus;
 
 /**
@@ -36,10 +39,10 @@ public class Order implements Serializable {
     private ItemStack itemStack;
     private int quantity;
     private double pricePerItem;
-    private int deliveredAmount;
+    private volatile int deliveredAmount;
     private long createdTime;
     private long expiresAt;
-    private OrderStatus status;
+    private volatile OrderStatus status;
 
     // Additional fields for plugin features
     private String world;
@@ -48,6 +51,35 @@ public class Order implements Serializable {
     private double totalPrice;
     private String description;
     private java.util.List<OrderItem> items = new java.util.ArrayList<>();
+    // Row version for optimistic concurrency, bumped by every database write
+    private long version;
+    // Delivered amount the database row holds at this version, and the amount captured
+    // for the write in flight; a conflicting writer's deliveries are the difference
+    private transient int storedDelivered;
+    private transient int drainedDelivered;
+
+    // Change tracking for delta updates (not serialized)
+    private transient EnumSet<OrderField> changedFields = EnumSet.noneOf(OrderField.class);
+    private transient boolean itemsReplaced;
+
+    // Shared template of the ordered item, if it has been interned
+    private transient ItemTemplate itemTemplate;
+
+    // Amount promised to deliveries that have not committed yet, with the CLOSED bit
+    // once the order is closed (not serialized)
+    private transient volatile int reservedAmount;
+
+    // Bumped by every in-memory change, so derived data such as GUI icons can tell it is stale
+    private transient volatile int revision;
+
+    private static final AtomicIntegerFieldUpdater<Order> DELIVERED =
+            AtomicIntegerFieldUpdater.newUpdater(Order.class, "deliveredAmount");
+    private static final AtomicIntegerFieldUpdater<Order> RESERVED =
+            AtomicIntegerFieldUpdater.newUpdater(Order.class, "reservedAmount");
+    private static final AtomicIntegerFieldUpdater<Order> REVISION =
+            AtomicIntegerFieldUpdater.newUpdater(Order.class, "revision");
+    // Set in reservedAmount by tryClose; no reservation can be taken afterwards
+    private static final int CLOSED = Integer.MIN_VALUE;
 
     public Order(int id, UUID creatorUUID, ItemStack itemStack, int quantity, double pricePerItem, int deliveredAmount, long createdTime, long expiresAt, OrderStatus status) {
         this.id = id;
@@ -56,6 +88,8 @@ public class Order implements Serializable {
         this.quantity = quantity;
         this.pricePerItem = pricePerItem;
         this.deliveredAmount = deliveredAmount;
+        this.storedDelivered = deliveredAmount;
+        this.drainedDelivered = deliveredAmount;
         this.createdTime = createdTime;
         this.expiresAt = expiresAt;
         this.status = status;
@@ -94,33 +128,45 @@ public class Order implements Serializable {
     public void setId(int id) { this.id = id; }
 
     public UUID getCreatorUUID() { return creatorUUID; }
-    public void setCreatorUUID(UUID creatorUUID) { this.creatorUUID = creatorUUID; }
+    public void setCreatorUUID(UUID creatorUUID) { this.creatorUUID = creatorUUID; REVISION.incrementAndGet(this); }
 
     public ItemStack getItemStack() { return itemStack; }
-    public void setItemStack(ItemStack itemStack) { this.itemStack = itemStack; }
+    public void setItemStack(ItemStack itemStack) { this.itemStack = itemStack; this.itemTemplate = null; REVISION.incrementAndGet(this); }
+
+    public ItemTemplate getItemTemplate() { return itemTemplate; }
+
+    /**
+     * Reference an interned template. The item stack becomes the template's shared
+     * instance, so it must not be modified.
+     */
+    public void setItemTemplate(ItemTemplate itemTemplate) {
+        this.itemTemplate = itemTemplate;
+        this.itemStack = itemTemplate != null ? itemTemplate.getItem() : null;
+        REVISION.incrementAndGet(this);
+    }
 
     public int getQuantity() { return quantity; }
-    public void setQuantity(int quantity) { this.quantity = quantity; }
+    public void setQuantity(int quantity) { this.quantity = quantity; markChanged(OrderField.QUANTITY); }
 
     public double getPricePerItem() { return pricePerItem; }
-    public void setPricePerItem(double pricePerItem) { this.pricePerItem = pricePerItem; }
+    public void setPricePerItem(double pricePerItem) { this.pricePerItem = pricePerItem; markChanged(OrderField.PRICE_PER_ITEM); }
 
     public int getDeliveredAmount() { return deliveredAmount; }
-    public void setDeliveredAmount(int deliveredAmount) { this.deliveredAmount = deliveredAmount; }
+    public void setDeliveredAmount(int deliveredAmount) { this.deliveredAmount = deliveredAmount; markChanged(OrderField.DELIVERED_AMOUNT); }
 
     public long getCreatedTime() { return createdTime; }
     public void setCreatedTime(long createdTime) { this.createdTime = createdTime; }
 
     public long getExpiresAt() { return expiresAt; }
-    public void setExpiresAt(long expiresAt) { this.expiresAt = expiresAt; }
+    public void setExpiresAt(long expiresAt) { this.expiresAt = expiresAt; markChanged(OrderField.EXPIRES_AT); }
 
     public OrderStatus getStatus() { return status; }
-    public void setStatus(OrderStatus status) { this.status = status; }
+    public void setStatus(OrderStatus status) { this.status = status; markChanged(OrderField.STATUS); }
     // Deprecated String status methods for compatibility
     @Deprecated
     public String getStatusString() { return status != null ? status.name() : null; }
     @Deprecated
-    public void setStatusString(String status) { this.status = status != null ? OrderStatus.valueOf(status) : null; }
+    public void setStatusString(String status) { setStatus(status != null ? OrderStatus.valueOf(status) : null); }
 
     // Business logic methods
 
@@ -132,6 +178,97 @@ public class Order implements Serializable {
         return deliveredAmount >= quantity;
     }
 
+    /**
+     * Whether the order still takes deliveries: pending or in progress, and not closed
+     */
+    public boolean isOpen() {
+        return isOpenStatus(status) && (reservedAmount & CLOSED) == 0;
+    }
+
+    private static boolean isOpenStatus(OrderStatus status) {
+        return status == OrderStatus.PENDING || status == OrderStatus.IN_PROGRESS;
+    }
+
+    // --- Delivery reservations ---
+
+    /**
+     * Reserves up to the wanted amount of the order's remaining quantity without locking.
+     * The reservation must be ended with {@link #commitReservation(int)} once payment
+     * succeeded, or {@link #rollbackReservation(int)} otherwise.
+     *
+     * @return the amount reserved, 0 if nothing is left or the order is not open
+     */
+    public int tryReserve(int wanted) {
+        if (wanted <= 0) return 0;
+        while (true) {
+            // Read reserved before delivered: a commit raises delivered before releasing its
+            // reservation, so this order can only overcount what is taken, never undercount
+            int reserved = reservedAmount;
+            if ((reserved & CLOSED) != 0 || !isOpenStatus(status)) {
+                return 0;
+            }
+            int available = quantity - deliveredAmount - reserved;
+            int granted = Math.min(wanted, available);
+            if (granted <= 0) {
+                return 0;
+            }
+            if (RESERVED.compareAndSet(this, reserved, reserved + granted)) {
+                return granted;
+            }
+        }
+    }
+
+    /**
+     * Turns a reservation into delivered items.
+     *
+     * @return whether the order is now fully fulfilled
+     */
+    public boolean commitReservation(int amount) {
+        int delivered = DELIVERED.addAndGet(this, amount);
+        RESERVED.addAndGet(this, -amount);
+        markChanged(OrderField.DELIVERED_AMOUNT);
+        return delivered >= quantity;
+    }
+
+    /**
+     * Releases a reservation whose delivery did not go through.
+     */
+    public void rollbackReservation(int amount) {
+        RESERVED.addAndGet(this, -amount);
+    }
+
+    public int getReservedAmount() {
+        return reservedAmount & ~CLOSED;
+    }
+
+    /**
+     * Closes an open order with the given status. Closing and reserving go through the
+     * same atomic word: the order only closes while no delivery holds a reservation,
+     * and once closed no reservation is granted, so its delivered amount is final.
+     *
+     * @return whether this call closed the order; false if it was not open or a
+     *         delivery is in flight
+     */
+    public boolean tryClose(OrderStatus closedStatus) {
+        if (!isOpenStatus(status) || !RESERVED.compareAndSet(this, 0, CLOSED)) {
+            return false;
+        }
+        setStatus(closedStatus);
+        return true;
+    }
+
+    /**
+     * Share of the total price paid for items that were never delivered, which is what
+     * the creator gets back when the order is closed early
+     */
+    public double getRefundAmount() {
+        int undelivered = Math.max(0, quantity - deliveredAmount);
+        if (quantity <= 0 || undelivered == 0) {
+            return 0;
+        }
+        return totalPrice > 0 ? totalPrice * undelivered / quantity : pricePerItem * undelivered;
+    }
+
     public boolean canBeCancelled() {
         return !isExpired() && !isFullyFulfilled() && status != OrderStatus.CANCELLED;
     }
@@ -163,17 +300,177 @@ public class Order implements Serializable {
     public void setZ(double z) { this.z = z; }
 
     public double getFee() { return fee; }
-    public void setFee(double fee) { this.fee = fee; }
+    public void setFee(double fee) { this.fee = fee; markChanged(OrderField.FEE); }
 
     public double getTotalPrice() { return totalPrice; }
-    public void setTotalPrice(double totalPrice) { this.totalPrice = totalPrice; }
+    public void setTotalPrice(double totalPrice) { this.totalPrice = totalPrice; markChanged(OrderField.TOTAL_PRICE); }
 
     public String getDescription() { return description; }
-    public void setDescription(String description) { this.description = description; }
+    public void setDescription(String description) { this.description = description; markChanged(OrderField.DESCRIPTION); }
 
     public java.util.List<OrderItem> getItems() { return items; }
-    public void setItems(java.util.List<OrderItem> items) { this.items = items; }
-    public void addItem(OrderItem item) { this.items.add(item); }
+    public synchronized void setItems(java.util.List<OrderItem> items) { this.items = items; this.itemsReplaced = true; }
+    public synchronized void addItem(OrderItem item) { this.items.add(item); }
+    public synchronized java.util.List<OrderItem> getItemsSnapshot() { return new java.util.ArrayList<>(items); }
+
+    public long getVersion() { return version; }
+    public void setVersion(long version) { this.version = version; }
+
+    /**
+     * Delivered amount to write, as captured when the pending changes were drained
+     */
+    public synchronized int getDeliveredAmountForWrite() { return drainedDelivered; }
+
+    /**
+     * Delivered amount the database row holds at the current version
+     */
+    public synchronized int getStoredDeliveredAmount() { return storedDelivered; }
+
+    /**
+     * Records that the drained changes were written, bumping the row version
+     */
+    public synchronized void markWritten() {
+        version++;
+        storedDelivered = drainedDelivered;
+    }
+
+    /**
+     * Puts back the version and stored amount from before a write that rolled back
+     */
+    public synchronized void restoreWriteState(long version, int storedDelivered) {
+        this.version = version;
+        this.storedDelivered = storedDelivered;
+        this.drainedDelivered = storedDelivered;
+    }
+
+    /**
+     * Counter of in-memory changes; differs whenever anything shown about the order may have changed
+     */
+    public int getRevision() { return revision; }
+
+    // --- Change tracking ---
+
+    private synchronized void markChanged(OrderField field) {
+        changedFields.add(field);
+        REVISION.incrementAndGet(this);
+    }
+
+    /**
+     * Returns the fields changed since the last drain and resets them.
+     */
+    public synchronized EnumSet<OrderField> drainChangedFields() {
+        EnumSet<OrderField> changed = EnumSet.copyOf(changedFields);
+        // A commit adds before it marks the field, so an unmarked count may already be
+        // ahead of the row; only a marked one is written
+        drainedDelivered = changed.contains(OrderField.DELIVERED_AMOUNT) ? deliveredAmount : storedDelivered;
+        changedFields.clear();
+        return changed;
+    }
+
+    /**
+     * Returns whether the item list was replaced since the last drain and resets the flag.
+     */
+    public synchronized boolean drainItemsReplaced() {
+        boolean replaced = itemsReplaced;
+        itemsReplaced = false;
+        return replaced;
+    }
+
+    /**
+     * If the only pending change is the status, clears it and returns true.
+     */
+    public synchronized boolean drainStatusOnlyChange() {
+        if (itemsReplaced || changedFields.size() != 1 || !changedFields.contains(OrderField.STATUS)) {
+            return false;
+        }
+        for (OrderItem item : items) {
+            if (item.getId() <= 0 || item.isDirty()) {
+                return false;
+            }
+        }
+        changedFields.clear();
+        return true;
+    }
+
+    public synchronized boolean hasChanges() {
+        return !changedFields.isEmpty() || itemsReplaced;
+    }
+
+    /**
+     * Forgets all pending changes, e.g. after loading from the database.
+     */
+    public synchronized void clearChanges() {
+        changedFields.clear();
+        storedDelivered = deliveredAmount;
+        drainedDelivered = deliveredAmount;
+        itemsReplaced = false;
+        for (OrderItem item : items) {
+            item.drainDirty();
+        }
+    }
+
+    /**
+     * Puts back changes that were drained for a write that did not go through.
+     */
+    public synchronized void restoreChanges(Set<OrderField> fields, boolean replacedItems) {
+        changedFields.addAll(fields);
+        itemsReplaced |= replacedItems;
+    }
+
+    /**
+     * Adopts the version and every field without a pending local change from a fresher
+     * copy of this order, so the next write applies only local changes on top of it.
+     *
+     * The delivered amount is a counter: the other writer's deliveries since the stored
+     * row are added to the local count instead of either side overwriting the other.
+     * The add is atomic, so deliveries committing meanwhile are kept, and the count
+     * never drops below what was committed here since the last write. Reservations
+     * are kept apart and are not touched.
+     */
+    public synchronized void rebase(Order fresh) {
+        version = fresh.version;
+        REVISION.incrementAndGet(this);
+        int remoteDelta = fresh.deliveredAmount - storedDelivered;
+        int current;
+        int next;
+        do {
+            current = deliveredAmount;
+            next = Math.max(current + remoteDelta, current - storedDelivered);
+        } while (!DELIVERED.compareAndSet(this, current, next));
+        storedDelivered = fresh.deliveredAmount;
+        drainedDelivered = fresh.deliveredAmount;
+        if (next != fresh.deliveredAmount) {
+            changedFields.add(OrderField.DELIVERED_AMOUNT);
+        }
+        for (OrderField field : OrderField.values()) {
+            if (changedFields.contains(field)) {
+                continue;
+            }
+            switch (field) {
+                case STATUS: status = fresh.status; break;
+                case EXPIRES_AT: expiresAt = fresh.expiresAt; break;
+                case FEE: fee = fresh.fee; break;
+                case TOTAL_PRICE: totalPrice = fresh.totalPrice; break;
+                case DESCRIPTION: description = fresh.description; break;
+                case QUANTITY: quantity = fresh.quantity; break;
+                case PRICE_PER_ITEM: pricePerItem = fresh.pricePerItem; break;
+                default: break;
+            }
+        }
+    }
+
+    /**
+     * Marks every field and the item list as changed so the next write is a full rewrite.
+     */
+    public synchronized void markAllChanged() {
+        changedFields = EnumSet.allOf(OrderField.class);
+        itemsReplaced = true;
+    }
+
+    private void readObject(java.io.ObjectInputStream in) throws java.io.IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        changedFields = EnumSet.noneOf(OrderField.class);
+    }
 
     // Alias for compatibility
     public UUID getPlayerUuid() { return getCreatorUUID(); }
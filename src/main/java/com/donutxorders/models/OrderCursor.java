@@ -0,0 +1,24 @@
+package com.donutxorders.models;
+
+/**
+ * Position of the last order on a page: its sort value and ID.
+ * The next page starts strictly after this position.
+ */
+public class OrderCursor {
+
+    private final double sortValue;
+    private final int orderId;
+
+    public OrderCursor(double sortValue, int orderId) {
+        this.sortValue = sortValue;
+        this.orderId = orderId;
+    }
+
+    public double getSortValue() { return sortValue; }
+    public int getOrderId() { return orderId; }
+
+    @Override
+    public String toString() {
+        return "OrderCursor{" + "sortValue=" + sortValue + ", orderId=" + orderId + '}';
+    }
+}
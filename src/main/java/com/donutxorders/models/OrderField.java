@@ -0,0 +1,15 @@
+package com.donutxorders.models;
+
+/**
+ * Persisted order fields tracked for column-level delta updates.
+ */
+public enum OrderField {
+    STATUS,
+    EXPIRES_AT,
+    FEE,
+    TOTAL_PRICE,
+    DESCRIPTION,
+    QUANTITY,
+    PRICE_PER_ITEM,
+    DELIVERED_AMOUNT
+}
@@ -21,7 +21,7 @@ public class OrderItem implements Serializable {
 
     // Aliases for compatibility
     public long getDeliveredAt() { return deliveredTime; }
-    public void setDeliveredAt(long deliveredAt) { this.deliveredTime = deliveredAt; }
+    public void setDeliveredAt(long deliveredAt) { setDeliveredTime(deliveredAt); }
     public UUID getDelivererUuid() { return getDelivererUUID(); }
     public void setDelivererUuid(UUID uuid) { setDelivererUUID(uuid); }
     public int getAmount() { return getQuantity(); }
@@ -44,6 +44,9 @@ public class OrderItem implements Serializable {
     private long deliveredTime;
     private double paymentAmount;
 
+    // Set when a persisted field changes (not serialized)
+    private transient volatile boolean dirty;
+
     public OrderItem(int id, int orderId, UUID delivererUUID, ItemStack itemStack, int quantity, long deliveredTime, double paymentAmount) {
         this.id = id;
         this.orderId = orderId;
@@ -79,20 +82,32 @@ public class OrderItem implements Serializable {
     public void setOrderId(int orderId) { this.orderId = orderId; }
 
     public UUID getDelivererUUID() { return delivererUUID; }
-    public void setDelivererUUID(UUID delivererUUID) { this.delivererUUID = delivererUUID; }
+    public void setDelivererUUID(UUID delivererUUID) { this.delivererUUID = delivererUUID; this.dirty = true; }
 
     public ItemStack getItemStack() { return itemStack; }
     public void setItemStack(ItemStack itemStack) { this.itemStack = itemStack; }
 
     public int getQuantity() { return quantity; }
-    public void setQuantity(int quantity) { this.quantity = quantity; }
+    public void setQuantity(int quantity) { this.quantity = quantity; this.dirty = true; }
 
     public long getDeliveredTime() { return deliveredTime; }
-    public void setDeliveredTime(long deliveredTime) { this.deliveredTime = deliveredTime; }
+    public void setDeliveredTime(long deliveredTime) { this.deliveredTime = deliveredTime; this.dirty = true; }
 
     public double getPaymentAmount() { return paymentAmount; }
     public void setPaymentAmount(double paymentAmount) { this.paymentAmount = paymentAmount; }
 
+    // Change tracking for delta updates
+    public boolean isDirty() { return dirty; }
+
+    /**
+     * Returns whether a persisted field changed since the last drain and resets the flag.
+     */
+    public boolean drainDirty() {
+        boolean wasDirty = dirty;
+        dirty = false;
+        return wasDirty;
+    }
+
     // Validation: Check if the item is valid for the order
     public boolean isValid() {
         return itemStack != null && quantity > 0;
@@ -0,0 +1,29 @@
+package com.donutxorders.models;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of orders returned by a keyset query.
+ */
+public class OrderPage {
+
+    private final List<Order> orders;
+    private final OrderCursor nextCursor;
+
+    public OrderPage(List<Order> orders, OrderCursor nextCursor) {
+        this.orders = orders;
+        this.nextCursor = nextCursor;
+    }
+
+    public static OrderPage empty() {
+        return new OrderPage(Collections.emptyList(), null);
+    }
+
+    public List<Order> getOrders() { return orders; }
+
+    // Cursor for the following page, or null if this is the last page
+    public OrderCursor getNextCursor() { return nextCursor; }
+
+    public boolean hasNext() { return nextCursor != null; }
+}
@@ -0,0 +1,164 @@
+package com.donutxorders.models;
+
+import org.bukkit.Material;
+
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * A keyset-paginated order query: filter, sort key, page size and cursor.
+ * Orders are ordered by the sort key and then by ID, so every order has a
+ * unique position and a page can resume right after the previous one.
+ */
+public class OrderQuery {
+
+    /**
+     * Sort keys, matching the options of {@code OrderManager.sortOrders}
+     */
+    public enum SortKey {
+        CREATED,
+        PRICE,
+        QUANTITY;
+
+        public static SortKey fromString(String sortBy) {
+            if (sortBy == null) return CREATED;
+            switch (sortBy.toLowerCase()) {
+                case "price": return PRICE;
+                case "quantity": return QUANTITY;
+                case "created":
+                default: return CREATED;
+            }
+        }
+
+        public double valueOf(Order order) {
+            switch (this) {
+                case PRICE: return order.getPricePerItem();
+                case QUANTITY: return order.getQuantity();
+                case CREATED:
+                default: return order.getCreatedTime();
+            }
+        }
+    }
+
+    private final int pageSize;
+    private Set<OrderStatus> statuses = EnumSet.noneOf(OrderStatus.class);
+    private Material material;
+    private UUID creator;
+    private String search = "";
+    private SortKey sortKey = SortKey.CREATED;
+    private boolean descending;
+    private OrderCursor cursor;
+
+    public OrderQuery(int pageSize) {
+        this.pageSize = Math.max(1, pageSize);
+    }
+
+    /**
+     * Map a GUI filter name ("all", "active", or a status name) to statuses
+     */
+    public static Set<OrderStatus> statusesForFilter(String filter) {
+        if (filter == null || filter.equalsIgnoreCase("all")) {
+            return EnumSet.noneOf(OrderStatus.class);
+        }
+        if (filter.equalsIgnoreCase("active")) {
+            return EnumSet.of(OrderStatus.PENDING, OrderStatus.IN_PROGRESS);
+        }
+        try {
+            return EnumSet.of(OrderStatus.valueOf(filter.toUpperCase()));
+        } catch (IllegalArgumentException e) {
+            return EnumSet.noneOf(OrderStatus.class);
+        }
+    }
+
+    public OrderQuery statuses(Set<OrderStatus> statuses) {
+        this.statuses = statuses.isEmpty() ? EnumSet.noneOf(OrderStatus.class) : EnumSet.copyOf(statuses);
+        return this;
+    }
+
+    public OrderQuery material(Material material) {
+        this.material = material;
+        return this;
+    }
+
+    public OrderQuery creator(UUID creator) {
+        this.creator = creator;
+        return this;
+    }
+
+    public OrderQuery search(String search) {
+        this.search = search == null ? "" : search.toLowerCase();
+        return this;
+    }
+
+    public OrderQuery sortBy(SortKey sortKey, boolean descending) {
+        this.sortKey = sortKey;
+        this.descending = descending;
+        return this;
+    }
+
+    public OrderQuery after(OrderCursor cursor) {
+        this.cursor = cursor;
+        return this;
+    }
+
+    public int getPageSize() { return pageSize; }
+    public Set<OrderStatus> getStatuses() { return statuses; }
+    public Material getMaterial() { return material; }
+    public UUID getCreator() { return creator; }
+    public String getSearch() { return search; }
+    public SortKey getSortKey() { return sortKey; }
+    public boolean isDescending() { return descending; }
+    public OrderCursor getCursor() { return cursor; }
+
+    /**
+     * Check the filter (status, material, creator and search text)
+     */
+    public boolean matches(Order order) {
+        if (!matchesFilters(order)) return false;
+        if (!search.isEmpty()) {
+            return order.getCreatorUUID().toString().toLowerCase().contains(search) ||
+                    (order.getItemStack() != null && order.getItemStack().getType().name().toLowerCase().contains(search)) ||
+                    order.getStatus().name().toLowerCase().contains(search);
+        }
+        return true;
+    }
+
+    /**
+     * Check the status, material and creator filters, leaving the search text to the caller
+     */
+    public boolean matchesFilters(Order order) {
+        if (!statuses.isEmpty() && !statuses.contains(order.getStatus())) return false;
+        if (creator != null && !creator.equals(order.getCreatorUUID())) return false;
+        if (material != null && (order.getItemStack() == null || order.getItemStack().getType() != material)) return false;
+        return true;
+    }
+
+    /**
+     * Page order: sort key, then ID, in the query direction
+     */
+    public Comparator<Order> comparator() {
+        Comparator<Order> comparator = Comparator.<Order>comparingDouble(sortKey::valueOf).thenComparingInt(Order::getId);
+        return descending ? comparator.reversed() : comparator;
+    }
+
+    /**
+     * Whether an order lies strictly after the cursor
+     */
+    public boolean isAfterCursor(Order order) {
+        if (cursor == null) return true;
+        int cmp = Double.compare(sortKey.valueOf(order), cursor.getSortValue());
+        if (cmp == 0) {
+            cmp = Integer.compare(order.getId(), cursor.getOrderId());
+        }
+        return descending ? cmp < 0 : cmp > 0;
+    }
+
+    /**
+     * Cursor positioned at the given order
+     */
+    public OrderCursor cursorAt(Order order) {
+        return new OrderCursor(sortKey.valueOf(order), order.getId());
+    }
+}
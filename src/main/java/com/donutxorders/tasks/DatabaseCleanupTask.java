@@ -2,6 +2,7 @@ package com.donutxorders.tasks;
 
 import com.donutxorders.core.DonutxOrders;
 import com.donutxorders.database.DatabaseManager;
+import com.donutxorders.managers.OrderManager;
 import org.bukkit.scheduler.BukkitRunnable;
 
 import java.util.logging.Logger;
@@ -34,12 +35,18 @@ public class DatabaseCleanupTask extends BukkitRunnable {
 
     /**
      * Removes old completed/expired orders and related data from the database.
+     * The order book is scanned rather than the database, since rows can lag the
+     * book by one flush; the matching rows are then deleted in a single write.
      */
     public void cleanupDatabase() {
         long cutoff = System.currentTimeMillis() - retentionMillis;
-        // TODO: Implement removeOldOrders in DatabaseManager
-        // int removed = databaseManager.removeOldOrders(cutoff);
-        // logger.info("[DonutxOrders] Database cleanup: removed " + removed + " old orders (older than " + (retentionMillis / (24 * 60 * 60 * 1000)) + " days).");
+        OrderManager orderManager = plugin.getOrderManager();
+        if (orderManager == null) return;
+
+        int removed = orderManager.removeFinishedOrders(cutoff).join();
+        if (removed >= 0) {
+            logger.info("[DonutxOrders] Database cleanup: removed " + removed + " old orders (older than " + (retentionMillis / (24 * 60 * 60 * 1000)) + " days).");
+        }
     }
 
     /**
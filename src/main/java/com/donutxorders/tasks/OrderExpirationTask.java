@@ -12,11 +12,11 @@ import org.bukkit.Bukkit;
 import org.bukkit.OfflinePlayer;
 import org.bukkit.scheduler.BukkitRunnable;
 
-import java.util.List;
 import java.util.UUID;
 
 /**
- * Periodically checks for expired orders, processes refunds, notifies players, and cleans up the database.
+ * Processes orders whose expiry deadline has passed: closes them, refunds and notifies players.
+ * Deadlines are kept by the order manager, so each run only touches due orders.
  * Expiration time is configurable via config.yml ("order-expiration-minutes").
  */
 public class OrderExpirationTask extends BukkitRunnable {
@@ -25,14 +25,14 @@ public class OrderExpirationTask extends BukkitRunnable {
     private final OrderManager orderManager;
     private final EconomyManager economyManager;
     private final long expirationMillis;
+    private final int batchSize;
 
     public OrderExpirationTask(DonutxOrders plugin) {
         this.plugin = plugin;
         this.orderManager = plugin.getOrderManager();
         this.economyManager = plugin.getEconomyManager();
-        // Get expiration time from config (default: 1440 minutes = 24 hours)
-        long minutes = plugin.getConfig().getLong("order-expiration-minutes", 1440L);
-        this.expirationMillis = minutes * 60 * 1000;
+        this.expirationMillis = orderManager.getExpirationMillis();
+        this.batchSize = Math.max(1, plugin.getConfigManager().getInt("tasks.expiration-batch-size", 500));
     }
 
     @Override
@@ -41,39 +41,42 @@ public class OrderExpirationTask extends BukkitRunnable {
     }
 
     /**
-     * Checks for expired orders and processes them.
+     * Processes the orders that are due. After downtime the backlog of overdue orders
+     * is worked off one batch per run so a single tick never stalls.
      */
     public void checkExpiredOrders() {
-        long now = System.currentTimeMillis();
-        List<Order> allOrders = orderManager.getAllActiveOrders();
-        for (Order order : allOrders) {
-            if (isExpired(order, now)) {
-                processExpiration(order);
-            }
+        for (Order order : orderManager.pollExpiredOrders(batchSize)) {
+            processExpiration(order);
         }
     }
 
     /**
-     * Determines if an order is expired.
+     * Handles refund, notification, and cleanup for an expired order.
      */
-    private boolean isExpired(Order order, long now) {
-        return order.getStatus() == OrderStatus.PENDING
-                && (now - order.getCreatedAt()) >= expirationMillis;
+    public void processExpiration(Order order) {
+        // Close the order first; a delivery in flight makes it wait for the next attempt
+        if (!order.tryClose(OrderStatus.EXPIRED)) {
+            if (order.isOpen()) {
+                orderManager.deferExpiration(order);
+            }
+            return;
+        }
+
+        // Update the database; the order stays in the book for the history view until
+        // the database cleanup purges it with the other finished orders
+        orderManager.updateOrder(order);
+
+        // Economy providers are not thread-safe; refund and notify on the main thread
+        Bukkit.getScheduler().runTask(plugin, () -> refund(order));
     }
 
     /**
-     * Handles refund, notification, and cleanup for an expired order.
+     * Refunds the undelivered part of a closed order and tells its creator. Runs on the main thread.
      */
-    public void processExpiration(Order order) {
-        // Refund the player
+    private void refund(Order order) {
         UUID playerId = order.getPlayerId();
-        double refundAmount = order.getTotalPrice();
-        boolean refunded = economyManager.deposit(playerId, refundAmount);
-
-        // Update order status and database
-        order.setStatus(OrderStatus.EXPIRED);
-        orderManager.updateOrder(order);
-        orderManager.removeOrder(order.getOrderId());
+        double refundAmount = order.getRefundAmount();
+        boolean refunded = refundAmount <= 0 || economyManager.deposit(playerId, refundAmount);
 
         // Notify player if online or store for later
         OfflinePlayer player = Bukkit.getOfflinePlayer(playerId);
@@ -0,0 +1,240 @@
+package com.donutxorders.utils;
+
+import de.tr7zw.changeme.nbtapi.NBTContainer;
+import de.tr7zw.changeme.nbtapi.NBTItem;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.nio.ByteBuffer;
+import java.util.Base64;
+
+/**
+ * Compact, versioned binary encoding for ItemStacks.
+ *
+ * Layout (version 1):
+ * <pre>
+ *   byte    magic (0xDC)
+ *   byte    version
+ *   byte    flags    bit 0: amount present, bit 1: NBT tag present
+ *   varint  material id from the material name table
+ *   varint  amount            (only if not 1)
+ *   varint  tag length + tag  (only if the item carries NBT, in NBT-API binary form)
+ * </pre>
+ * Values equal to the vanilla defaults (amount 1, no tag) are left out, so a plain
+ * stack of a common material takes four bytes.
+ */
+public final class ItemCodec {
+
+    /**
+     * Maps materials to stable ids. Bukkit ordinals change between server versions,
+     * so ids come from a persisted name table instead.
+     */
+    public interface MaterialTable {
+        int idOf(Material material);
+        Material materialOf(int id);
+    }
+
+    public static final byte MAGIC = (byte) 0xDC;
+    public static final byte VERSION = 1;
+
+    private static final int FLAG_AMOUNT = 1;
+    private static final int FLAG_TAG = 1 << 1;
+
+    private ItemCodec() {
+    }
+
+    /**
+     * Whether the data was written by this codec rather than the legacy Base64 format
+     */
+    public static boolean isBinary(byte[] data) {
+        return data != null && data.length >= 2 && data[0] == MAGIC;
+    }
+
+    /**
+     * Encode an item into a new array of exactly the encoded size
+     */
+    public static byte[] encode(ItemStack item, MaterialTable materials) {
+        byte[] tag = encodeTag(item);
+        ByteBuffer buffer = ByteBuffer.allocate(encodedSize(item, materials, tag));
+        write(item, materials, tag, buffer);
+        return buffer.array();
+    }
+
+    /**
+     * Encode an item into the buffer at its current position
+     *
+     * @return the number of bytes written
+     */
+    public static int encode(ItemStack item, MaterialTable materials, ByteBuffer buffer) {
+        int start = buffer.position();
+        write(item, materials, encodeTag(item), buffer);
+        return buffer.position() - start;
+    }
+
+    /**
+     * Decode an item from the buffer at its current position. The buffer is left
+     * positioned after the item.
+     */
+    public static ItemStack decode(ByteBuffer buffer, MaterialTable materials) {
+        if (buffer.get() != MAGIC) {
+            throw new IllegalArgumentException("Not an encoded item");
+        }
+        byte version = buffer.get();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported item encoding version " + version);
+        }
+        int flags = buffer.get();
+        int materialId = readVarInt(buffer);
+        Material material = materials.materialOf(materialId);
+        if (material == null) {
+            throw new IllegalArgumentException("Unknown material id " + materialId);
+        }
+        int amount = (flags & FLAG_AMOUNT) != 0 ? readVarInt(buffer) : 1;
+        ItemStack item = new ItemStack(material, amount);
+
+        if ((flags & FLAG_TAG) != 0) {
+            int length = readVarInt(buffer);
+            ByteBuffer tag = buffer.slice();
+            tag.limit(length);
+            buffer.position(buffer.position() + length);
+
+            NBTItem nbt = new NBTItem(item);
+            nbt.mergeCompound(new NBTContainer(new ByteBufferInputStream(tag)));
+            item = nbt.getItem();
+        }
+        return item;
+    }
+
+    /**
+     * Decode stored item data, accepting both this codec and the legacy
+     * Base64-encoded Java serialization format
+     */
+    public static ItemStack decode(byte[] data, MaterialTable materials) {
+        if (data == null || data.length == 0) {
+            return null;
+        }
+        if (isBinary(data)) {
+            return decode(ByteBuffer.wrap(data), materials);
+        }
+        return decodeLegacy(new String(data, java.nio.charset.StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Decode the legacy Base64 Java serialization format
+     */
+    public static ItemStack decodeLegacy(String data) {
+        try (ObjectInputStream inputStream = new ObjectInputStream(new ByteArrayInputStream(Base64.getDecoder().decode(data.trim())))) {
+            Object obj = inputStream.readObject();
+            if (obj instanceof ItemStack) {
+                return (ItemStack) obj;
+            }
+        } catch (Exception e) {
+            // Not a readable legacy item
+        }
+        return null;
+    }
+
+    private static void write(ItemStack item, MaterialTable materials, byte[] tag, ByteBuffer buffer) {
+        int amount = item.getAmount();
+        int flags = (amount != 1 ? FLAG_AMOUNT : 0) | (tag != null ? FLAG_TAG : 0);
+        buffer.put(MAGIC);
+        buffer.put(VERSION);
+        buffer.put((byte) flags);
+        writeVarInt(buffer, materials.idOf(item.getType()));
+        if (amount != 1) {
+            writeVarInt(buffer, amount);
+        }
+        if (tag != null) {
+            writeVarInt(buffer, tag.length);
+            buffer.put(tag);
+        }
+    }
+
+    private static int encodedSize(ItemStack item, MaterialTable materials, byte[] tag) {
+        int size = 3 + varIntSize(materials.idOf(item.getType()));
+        if (item.getAmount() != 1) {
+            size += varIntSize(item.getAmount());
+        }
+        if (tag != null) {
+            size += varIntSize(tag.length) + tag.length;
+        }
+        return size;
+    }
+
+    // NBT tag of the item in binary form, or null if it has none
+    private static byte[] encodeTag(ItemStack item) {
+        if (!item.hasItemMeta()) {
+            return null;
+        }
+        NBTItem nbt = new NBTItem(item);
+        if (!nbt.hasNBTData()) {
+            return null;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64);
+        nbt.writeCompound(out);
+        return out.toByteArray();
+    }
+
+    private static void writeVarInt(ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static int readVarInt(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    private static int varIntSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            size++;
+            value >>>= 7;
+        }
+        return size;
+    }
+
+    // Reads a buffer region in place so the tag is never copied into an array
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return buffer.remaining();
+        }
+    }
+}
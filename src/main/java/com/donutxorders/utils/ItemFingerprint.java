@@ -0,0 +1,289 @@
+package com.donutxorders.utils;
+
+import de.tr7zw.changeme.nbtapi.NBTCompound;
+import de.tr7zw.changeme.nbtapi.NBTItem;
+import de.tr7zw.changeme.nbtapi.NBTList;
+import de.tr7zw.changeme.nbtapi.NBTReflectionUtil;
+import de.tr7zw.changeme.nbtapi.NBTType;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Canonical 128-bit hash of an item's type and normalized NBT, ignoring the
+ * stack amount. Compound keys are hashed in sorted order and default values that
+ * the server adds or drops on its own (Damage 0, empty compounds) are skipped, so
+ * equal items get equal fingerprints however their tags were built. Custom model
+ * data is part of the tag and therefore covered.
+ *
+ * Computing a fingerprint walks the tag once; comparing two is two long compares.
+ * The hash is not collision-resistant and players control much of an item's NBT
+ * (names, lore, books), so equal fingerprints only select candidates: every match
+ * is confirmed with a full compare through {@link #matches}.
+ */
+public final class ItemFingerprint {
+
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+
+    private final long high;
+    private final long low;
+
+    private ItemFingerprint(long high, long low) {
+        this.high = high;
+        this.low = low;
+    }
+
+    /**
+     * Compute the fingerprint of an item, or null for a null item
+     */
+    public static ItemFingerprint of(ItemStack item) {
+        if (item == null) return null;
+        Hasher hasher = new Hasher();
+        hasher.putString(item.getType().name());
+        if (item.hasItemMeta()) {
+            NBTItem nbt = new NBTItem(item);
+            if (nbt.hasNBTData()) {
+                hashCompound(hasher, nbt, true);
+            }
+        }
+        return hasher.finish();
+    }
+
+    /**
+     * Whether two items are the same variant
+     */
+    public static boolean matches(ItemStack a, ItemStack b) {
+        if (a == null || b == null) return false;
+        return matches(a, of(b), b);
+    }
+
+    /**
+     * Whether an item is the variant of a reference item whose fingerprint is already
+     * known. The fingerprint rejects most items cheaply; an equal one is confirmed by
+     * comparing the full item meta, so a crafted collision cannot pass. This is the
+     * one matching rule for orders and deliveries.
+     */
+    public static boolean matches(ItemStack item, ItemFingerprint referenceFingerprint, ItemStack reference) {
+        if (item == null || reference == null || referenceFingerprint == null) return false;
+        if (item.getType() != reference.getType()) return false;
+        return referenceFingerprint.equals(of(item)) && item.isSimilar(reference);
+    }
+
+    public long getHigh() { return high; }
+    public long getLow() { return low; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ItemFingerprint)) return false;
+        ItemFingerprint other = (ItemFingerprint) o;
+        return high == other.high && low == other.low;
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (low ^ (low >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%016x%016x", high, low);
+    }
+
+    private static void hashCompound(Hasher hasher, NBTCompound compound, boolean root) {
+        List<String> keys = new ArrayList<>(compound.getKeys());
+        Collections.sort(keys);
+        for (String key : keys) {
+            NBTType type = compound.getType(key);
+            if (type == null || isDefault(compound, key, type, root)) continue;
+            hasher.putString(key);
+            hasher.putLong(type.ordinal());
+            hashValue(hasher, compound, key, type);
+        }
+        hasher.putLong(-1L);
+    }
+
+    private static boolean isDefault(NBTCompound compound, String key, NBTType type, boolean root) {
+        if (type == NBTType.NBTTagCompound) {
+            NBTCompound child = compound.getCompound(key);
+            return child == null || child.getKeys().isEmpty();
+        }
+        return root && "Damage".equals(key) && type == NBTType.NBTTagInt && compound.getInteger(key) == 0;
+    }
+
+    private static void hashValue(Hasher hasher, NBTCompound compound, String key, NBTType type) {
+        switch (type) {
+            case NBTTagByte: hasher.putLong(compound.getByte(key)); break;
+            case NBTTagShort: hasher.putLong(compound.getShort(key)); break;
+            case NBTTagInt: hasher.putLong(compound.getInteger(key)); break;
+            case NBTTagLong: hasher.putLong(compound.getLong(key)); break;
+            case NBTTagFloat: hasher.putLong(Float.floatToIntBits(compound.getFloat(key))); break;
+            case NBTTagDouble: hasher.putLong(Double.doubleToLongBits(compound.getDouble(key))); break;
+            case NBTTagString: hasher.putString(compound.getString(key)); break;
+            case NBTTagByteArray: {
+                byte[] values = compound.getByteArray(key);
+                hasher.putLong(values.length);
+                for (byte value : values) hasher.putLong(value);
+                break;
+            }
+            case NBTTagIntArray: hashInts(hasher, compound.getIntArray(key)); break;
+            case NBTTagLongArray: {
+                long[] values = compound.getLongArray(key);
+                hasher.putLong(values.length);
+                for (long value : values) hasher.putLong(value);
+                break;
+            }
+            case NBTTagCompound: hashCompound(hasher, compound.getCompound(key), false); break;
+            case NBTTagList: hashList(hasher, compound, key); break;
+            default: break;
+        }
+    }
+
+    // List order is significant, so elements are hashed as they come
+    private static void hashList(Hasher hasher, NBTCompound compound, String key) {
+        NBTType elementType = compound.getListType(key);
+        if (elementType == null) {
+            hasher.putLong(0);
+            return;
+        }
+        hasher.putLong(elementType.ordinal());
+        switch (elementType) {
+            case NBTTagCompound: {
+                NBTList<?> list = compound.getCompoundList(key);
+                hasher.putLong(list.size());
+                for (int i = 0; i < list.size(); i++) {
+                    hashCompound(hasher, (NBTCompound) list.get(i), false);
+                }
+                break;
+            }
+            case NBTTagString: {
+                NBTList<String> list = compound.getStringList(key);
+                hasher.putLong(list.size());
+                for (int i = 0; i < list.size(); i++) hasher.putString(list.get(i));
+                break;
+            }
+            case NBTTagInt: {
+                NBTList<Integer> list = compound.getIntegerList(key);
+                hasher.putLong(list.size());
+                for (int i = 0; i < list.size(); i++) hasher.putLong(list.get(i));
+                break;
+            }
+            case NBTTagLong: {
+                NBTList<Long> list = compound.getLongList(key);
+                hasher.putLong(list.size());
+                for (int i = 0; i < list.size(); i++) hasher.putLong(list.get(i));
+                break;
+            }
+            case NBTTagFloat: {
+                NBTList<Float> list = compound.getFloatList(key);
+                hasher.putLong(list.size());
+                for (int i = 0; i < list.size(); i++) hasher.putLong(Float.floatToIntBits(list.get(i)));
+                break;
+            }
+            case NBTTagDouble: {
+                NBTList<Double> list = compound.getDoubleList(key);
+                hasher.putLong(list.size());
+                for (int i = 0; i < list.size(); i++) hasher.putLong(Double.doubleToLongBits(list.get(i)));
+                break;
+            }
+            case NBTTagIntArray: {
+                NBTList<int[]> list = compound.getIntArrayList(key);
+                hasher.putLong(list.size());
+                for (int i = 0; i < list.size(); i++) hashInts(hasher, list.get(i));
+                break;
+            }
+            default: {
+                // Byte, short, byte-array, long-array and nested lists have no NBT-API
+                // reader; hash the SNBT of the raw tag, which spells out every element
+                Object tag = NBTReflectionUtil.getEntry(compound, key);
+                hasher.putString(tag != null ? tag.toString() : "");
+                break;
+            }
+        }
+    }
+
+    private static void hashInts(Hasher hasher, int[] values) {
+        hasher.putLong(values.length);
+        for (int value : values) hasher.putLong(value);
+    }
+
+    // MurmurHash3 x64 128-bit mixing over a stream of 64-bit words
+    private static final class Hasher {
+        private long h1;
+        private long h2;
+        private long pending;
+        private boolean hasPending;
+        private long words;
+
+        void putLong(long value) {
+            words++;
+            if (!hasPending) {
+                pending = value;
+                hasPending = true;
+                return;
+            }
+            mix(pending, value);
+            hasPending = false;
+        }
+
+        void putString(String value) {
+            int length = value.length();
+            putLong(length);
+            for (int i = 0; i < length; i += 4) {
+                long packed = 0;
+                for (int j = i; j < Math.min(i + 4, length); j++) {
+                    packed = (packed << 16) | value.charAt(j);
+                }
+                putLong(packed);
+            }
+        }
+
+        private void mix(long k1, long k2) {
+            k1 *= C1;
+            k1 = Long.rotateLeft(k1, 31);
+            k1 *= C2;
+            h1 ^= k1;
+            h1 = Long.rotateLeft(h1, 27);
+            h1 += h2;
+            h1 = h1 * 5 + 0x52dce729;
+
+            k2 *= C2;
+            k2 = Long.rotateLeft(k2, 33);
+            k2 *= C1;
+            h2 ^= k2;
+            h2 = Long.rotateLeft(h2, 31);
+            h2 += h1;
+            h2 = h2 * 5 + 0x38495ab5;
+        }
+
+        ItemFingerprint finish() {
+            if (hasPending) {
+                long k1 = pending * C1;
+                k1 = Long.rotateLeft(k1, 31);
+                k1 *= C2;
+                h1 ^= k1;
+            }
+            h1 ^= words;
+            h2 ^= words;
+            h1 += h2;
+            h2 += h1;
+            h1 = fmix(h1);
+            h2 = fmix(h2);
+            h1 += h2;
+            h2 += h1;
+            return new ItemFingerprint(h1, h2);
+        }
+
+        private static long fmix(long k) {
+            k ^= k >>> 33;
+            k *= 0xff51afd7ed558ccdL;
+            k ^= k >>> 33;
+            k *= 0xc4ceb9fe1a85ec53L;
+            k ^= k >>> 33;
+            return k;
+        }
+    }
+}
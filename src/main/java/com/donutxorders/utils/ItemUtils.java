@@ -1,6 +1,5 @@
 package com.donutxorders.utils;
 
-import de.tr7zw.changeme.nbtapi.NBTItem;
 import org.bukkit.Material;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.ItemMeta;
@@ -45,21 +44,6 @@ public class ItemUtils {
 
     // Compare two ItemStacks, including NBT and custom model data
     public static boolean compareItemStacks(ItemStack a, ItemStack b) {
-        if (a == null || b == null) return false;
-        if (a.getType() != b.getType()) return false;
-        ItemMeta metaA = a.getItemMeta();
-        ItemMeta metaB = b.getItemMeta();
-        if (metaA != null && metaB != null) {
-            if (metaA.hasCustomModelData() != metaB.hasCustomModelData()) return false;
-            if (metaA.hasCustomModelData() && metaB.hasCustomModelData()) {
-                if (metaA.getCustomModelData() != metaB.getCustomModelData()) return false;
-            }
-        } else if (metaA != null || metaB != null) {
-            return false;
-        }
-        // NBT comparison using NBTAPI
-        NBTItem nbtA = new NBTItem(a);
-        NBTItem nbtB = new NBTItem(b);
-        return nbtA.toString().equals(nbtB.toString());
+        return ItemFingerprint.matches(a, b);
     }
 }
\ No newline at end of file
@@ -0,0 +1,25 @@
+package com.donutxorders.collections;
+
+/**
+ * Keys chosen by their home slot, to build probe runs at known places in a table
+ */
+final class CollidingKeys {
+
+    private CollidingKeys() {
+    }
+
+    /**
+     * The first count positive keys whose home slot in a table of the given capacity
+     * is home
+     */
+    static int[] withHome(int home, int capacity, int count) {
+        int[] found = new int[count];
+        int index = 0;
+        for (int key = 1; index < count; key++) {
+            if ((IntHashing.mix(key) & (capacity - 1)) == home) {
+                found[index++] = key;
+            }
+        }
+        return found;
+    }
+}
@@ -0,0 +1,102 @@
+package com.donutxorders.collections;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Optimistic reads racing a writer that grows and shrinks the map, as the order
+ * book's readers race the expiration task and new orders.
+ */
+class ConcurrentIntObjectMapTest {
+
+    private static final int READERS = 4;
+    private static final int STABLE_KEYS = 1_000;
+    private static final int CHURN_KEYS = 200_000;
+
+    @Test
+    void readersNeverSeeAWrongOrMissingValueWhileTheMapChanges() throws Exception {
+        // Stable keys are never touched by the writer and must stay visible throughout
+        ConcurrentIntObjectMap<Integer> map = new ConcurrentIntObjectMap<>();
+        for (int key = 0; key < STABLE_KEYS; key++) {
+            map.put(key, key);
+        }
+
+        AtomicBoolean writing = new AtomicBoolean(true);
+        AtomicReference<String> failure = new AtomicReference<>();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> readers = new ArrayList<>();
+        for (int r = 0; r < READERS; r++) {
+            int seed = r;
+            Thread reader = new Thread(() -> {
+                await(start);
+                int key = seed;
+                while (writing.get() && failure.get() == null) {
+                    int stable = key % STABLE_KEYS;
+                    Integer value = map.get(stable);
+                    if (value == null || value != stable) {
+                        failure.compareAndSet(null, "stable key " + stable + " read as " + value);
+                    }
+                    int churn = STABLE_KEYS + key % CHURN_KEYS;
+                    Integer other = map.get(churn);
+                    if (other != null && other != churn) {
+                        failure.compareAndSet(null, "key " + churn + " read as " + other);
+                    }
+                    key += READERS;
+                }
+            });
+            reader.start();
+            readers.add(reader);
+        }
+
+        start.countDown();
+        try {
+            // Grow through several resizes, then remove every other key to churn probe runs
+            for (int key = STABLE_KEYS; key < STABLE_KEYS + CHURN_KEYS; key++) {
+                map.put(key, key);
+            }
+            for (int key = STABLE_KEYS; key < STABLE_KEYS + CHURN_KEYS; key += 2) {
+                map.remove(key);
+            }
+        } finally {
+            writing.set(false);
+        }
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        assertNull(failure.get(), failure.get());
+        assertEquals(STABLE_KEYS + CHURN_KEYS / 2, map.size());
+        assertEquals(map.size(), map.keys().length);
+        assertEquals(map.size(), map.values().size());
+        for (int key = STABLE_KEYS; key < STABLE_KEYS + CHURN_KEYS; key++) {
+            assertEquals(key % 2 == 1, map.containsKey(key));
+        }
+    }
+
+    @Test
+    void clearEmptiesTheMap() {
+        ConcurrentIntObjectMap<String> map = new ConcurrentIntObjectMap<>(8);
+        map.put(1, "a");
+        map.put(2, "b");
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.get(1));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.donutxorders.collections;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Linear probing and backward-shift removal in {@link IntHashSet}, and the key 0
+ * that shares its value with a free slot.
+ */
+class IntHashSetTest {
+
+    private static final int CAPACITY = IntHashing.DEFAULT_CAPACITY;
+
+    @Test
+    void probeRunWrapsAroundTheEndOfTheTable() {
+        int[] last = CollidingKeys.withHome(CAPACITY - 1, CAPACITY, 3);
+        int first = CollidingKeys.withHome(0, CAPACITY, 1)[0];
+        IntHashSet set = new IntHashSet();
+        for (int key : last) {
+            assertTrue(set.add(key));
+        }
+        assertTrue(set.add(first));
+        assertFalse(set.add(last[2]));
+
+        assertTrue(set.remove(last[0]));
+        assertFalse(set.contains(last[0]));
+        assertTrue(set.contains(last[1]));
+        assertTrue(set.contains(last[2]));
+        assertTrue(set.contains(first));
+        assertEquals(3, set.size());
+    }
+
+    @Test
+    void removalInsideARunKeepsLaterKeysReachable() {
+        int[] run = CollidingKeys.withHome(9, CAPACITY, 4);
+        int neighbour = CollidingKeys.withHome(10, CAPACITY, 1)[0];
+        IntHashSet set = new IntHashSet();
+        for (int key : run) {
+            set.add(key);
+        }
+        set.add(neighbour);
+
+        assertTrue(set.remove(run[0]));
+        assertTrue(set.remove(run[2]));
+        assertFalse(set.remove(run[2]));
+
+        assertTrue(set.contains(run[1]));
+        assertTrue(set.contains(run[3]));
+        assertTrue(set.contains(neighbour));
+        assertEquals(3, set.size());
+    }
+
+    @Test
+    void zeroIsAnOrdinaryKey() {
+        IntHashSet set = new IntHashSet();
+        assertFalse(set.contains(0));
+        assertTrue(set.add(0));
+        assertFalse(set.add(0));
+        set.add(3);
+        assertEquals(2, set.size());
+
+        int[] keys = set.toArray();
+        Arrays.sort(keys);
+        assertArrayEquals(new int[]{0, 3}, keys);
+
+        assertTrue(set.remove(0));
+        assertFalse(set.contains(0));
+        assertEquals(1, set.size());
+    }
+
+    @Test
+    void growsPastItsInitialCapacity() {
+        IntHashSet set = new IntHashSet(1);
+        int count = 10_000;
+        for (int key = 1; key <= count; key++) {
+            set.add(key);
+        }
+        assertEquals(count, set.size());
+        for (int key = 1; key <= count; key++) {
+            assertTrue(set.contains(key));
+        }
+
+        int[] drained = set.drain();
+        assertEquals(count, drained.length);
+        assertTrue(set.isEmpty());
+        assertFalse(set.contains(1));
+    }
+
+    @Test
+    void matchesHashSetUnderRandomAddsAndRemoves() {
+        Random random = new Random(42);
+        IntHashSet set = new IntHashSet();
+        Set<Integer> expected = new HashSet<>();
+        for (int i = 0; i < 50_000; i++) {
+            int key = random.nextInt(48) - 8;
+            if (random.nextBoolean()) {
+                assertEquals(expected.add(key), set.add(key));
+            } else {
+                assertEquals(expected.remove(key), set.remove(key));
+            }
+            assertEquals(expected.size(), set.size());
+        }
+        for (int key = -8; key < 40; key++) {
+            assertEquals(expected.contains(key), set.contains(key));
+        }
+    }
+}
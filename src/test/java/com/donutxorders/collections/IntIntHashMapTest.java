@@ -0,0 +1,63 @@
+package com.donutxorders.collections;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Linear probing and backward-shift removal in {@link IntIntHashMap}, with absent
+ * keys reading as the missing value.
+ */
+class IntIntHashMapTest {
+
+    private static final int CAPACITY = IntHashing.DEFAULT_CAPACITY;
+    private static final int MISSING = -1;
+
+    @Test
+    void probeRunWrapsAroundTheEndOfTheTable() {
+        int[] last = CollidingKeys.withHome(CAPACITY - 1, CAPACITY, 3);
+        int first = CollidingKeys.withHome(0, CAPACITY, 1)[0];
+        IntIntHashMap map = new IntIntHashMap(MISSING);
+        for (int key : last) {
+            assertEquals(MISSING, map.put(key, key * 2));
+        }
+        map.put(first, 0);
+
+        assertEquals(last[0] * 2, map.remove(last[0]));
+        assertFalse(map.containsKey(last[0]));
+        assertEquals(MISSING, map.get(last[0]));
+        assertEquals(last[1] * 2, map.get(last[1]));
+        assertEquals(last[2] * 2, map.get(last[2]));
+        // A stored value equal to the missing value still counts as present
+        assertTrue(map.containsKey(first));
+        assertEquals(0, map.get(first));
+        assertEquals(3, map.size());
+    }
+
+    @Test
+    void matchesHashMapUnderRandomPutsAndRemoves() {
+        Random random = new Random(42);
+        IntIntHashMap map = new IntIntHashMap(MISSING);
+        Map<Integer, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 50_000; i++) {
+            int key = random.nextInt(48) - 8;
+            if (random.nextBoolean()) {
+                assertEquals(expected.getOrDefault(key, MISSING), map.put(key, i));
+                expected.put(key, i);
+            } else {
+                Integer removed = expected.remove(key);
+                assertEquals(removed == null ? MISSING : removed, map.remove(key));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        for (int key = -8; key < 40; key++) {
+            assertEquals(expected.getOrDefault(key, MISSING), map.get(key));
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.donutxorders.collections;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Linear probing and backward-shift removal in {@link IntObjectHashMap}: runs that
+ * wrap past the end of the table, removals inside a run, and growth.
+ */
+class IntObjectHashMapTest {
+
+    private static final int CAPACITY = IntHashing.DEFAULT_CAPACITY;
+
+    @Test
+    void probeRunWrapsAroundTheEndOfTheTable() {
+        // Three keys homed in the last slot spill into slots 0 and 1, ahead of a key homed in 0
+        int[] last = CollidingKeys.withHome(CAPACITY - 1, CAPACITY, 3);
+        int first = CollidingKeys.withHome(0, CAPACITY, 1)[0];
+        IntObjectHashMap<String> map = new IntObjectHashMap<>();
+        for (int key : last) {
+            assertNull(map.put(key, "v" + key));
+        }
+        map.put(first, "v" + first);
+
+        assertEquals(4, map.size());
+        for (int key : last) {
+            assertEquals("v" + key, map.get(key));
+        }
+        assertEquals("v" + first, map.get(first));
+
+        assertEquals("v" + last[0], map.remove(last[0]));
+        assertNull(map.get(last[0]));
+        assertEquals("v" + last[1], map.get(last[1]));
+        assertEquals("v" + last[2], map.get(last[2]));
+        assertEquals("v" + first, map.get(first));
+        assertEquals(3, map.size());
+    }
+
+    @Test
+    void removalInsideARunKeepsLaterKeysReachable() {
+        int[] run = CollidingKeys.withHome(5, CAPACITY, 4);
+        int neighbour = CollidingKeys.withHome(6, CAPACITY, 1)[0];
+        IntObjectHashMap<Integer> map = new IntObjectHashMap<>();
+        for (int key : run) {
+            map.put(key, key);
+        }
+        // Homed in 6 but pushed past the run; must not move ahead of its home
+        map.put(neighbour, neighbour);
+
+        assertEquals(run[1], map.remove(run[1]));
+        assertEquals(run[2], map.remove(run[2]));
+
+        assertFalse(map.containsKey(run[1]));
+        assertFalse(map.containsKey(run[2]));
+        assertEquals(run[0], map.get(run[0]));
+        assertEquals(run[3], map.get(run[3]));
+        assertEquals(neighbour, map.get(neighbour));
+
+        assertEquals(neighbour, map.remove(neighbour));
+        assertEquals(run[3], map.get(run[3]));
+        assertEquals(2, map.size());
+        assertNull(map.remove(neighbour));
+    }
+
+    @Test
+    void putReplacesWithoutGrowing() {
+        IntObjectHashMap<String> map = new IntObjectHashMap<>();
+        assertNull(map.put(7, "a"));
+        assertEquals("a", map.put(7, "b"));
+        assertEquals("b", map.get(7));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    void growsPastItsInitialCapacity() {
+        IntObjectHashMap<Integer> map = new IntObjectHashMap<>(4);
+        int count = 10_000;
+        for (int key = 0; key < count; key++) {
+            map.put(key, key);
+        }
+        assertEquals(count, map.size());
+        for (int key = 0; key < count; key++) {
+            assertEquals(key, map.get(key));
+        }
+
+        for (int key = 0; key < count; key += 2) {
+            assertEquals(key, map.remove(key));
+        }
+        assertEquals(count / 2, map.size());
+        assertEquals(count / 2, map.keys().length);
+        for (int key = 0; key < count; key++) {
+            assertEquals(key % 2 == 1, map.containsKey(key));
+        }
+    }
+
+    @Test
+    void matchesHashMapUnderRandomPutsAndRemoves() {
+        // A narrow key range keeps runs long and removals landing inside them
+        Random random = new Random(42);
+        IntObjectHashMap<Integer> map = new IntObjectHashMap<>();
+        Map<Integer, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 50_000; i++) {
+            int key = random.nextInt(48) - 8;
+            if (random.nextBoolean()) {
+                assertEquals(expected.put(key, i), map.put(key, i));
+            } else {
+                assertEquals(expected.remove(key), map.remove(key));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        for (int key = -8; key < 40; key++) {
+            assertEquals(expected.get(key), map.get(key));
+        }
+
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.get(expected.keySet().iterator().next()));
+    }
+}
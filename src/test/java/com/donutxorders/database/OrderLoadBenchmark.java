@@ -0,0 +1,147 @@
+package com.donutxorders.database;
+
+import com.donutxorders.core.ConfigManager;
+import com.donutxorders.core.DonutxOrders;
+import com.donutxorders.models.Order;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Time to load every order with its items through the joined query, at 10k, 100k
+ * and 1M orders with two item rows each, against a real SQLite file.
+ *
+ * Not run by surefire; after {@code mvn test-compile} run it with
+ * {@code java -cp target/test-classes:<test classpath> org.openjdk.jmh.Main OrderLoadBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class OrderLoadBenchmark {
+
+    private static final int ITEMS_PER_ORDER = 2;
+    private static final int INSERT_BATCH = 10_000;
+
+    @Param({"10000", "100000", "1000000"})
+    public int orders;
+
+    private Path directory;
+    private SQLiteDatabase database;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("donutx-load-benchmark");
+
+        // The database only needs the plugin for its configuration, logger and data folder
+        YamlConfiguration config = new YamlConfiguration();
+        config.set("database.file", directory.resolve("orders.db").toString());
+        config.set("database.verify-query-plans", false);
+        ConfigManager configManager = mock(ConfigManager.class);
+        when(configManager.getConfig()).thenReturn(config);
+        DonutxOrders plugin = mock(DonutxOrders.class);
+        when(plugin.getConfigManager()).thenReturn(configManager);
+        when(plugin.getLogger()).thenReturn(Logger.getLogger("DonutxOrders"));
+        when(plugin.getDataFolder()).thenReturn(directory.toFile());
+
+        database = new SQLiteDatabase(plugin);
+        if (!database.initializeAsync().join()) {
+            throw new IllegalStateException("Database failed to initialize");
+        }
+        populate();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.disconnect();
+        File[] files = directory.toFile().listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.toFile().delete();
+    }
+
+    @Benchmark
+    public List<Order> loadAll() throws SQLException {
+        try (Connection connection = database.getConnection()) {
+            return database.loadOrdersFromDatabase(connection);
+        }
+    }
+
+    @Benchmark
+    public int streamAll(Blackhole blackhole) throws SQLException {
+        try (Connection connection = database.getConnection()) {
+            return database.streamOrdersFromDatabase(connection, blackhole::consume);
+        }
+    }
+
+    // Bulk-insert the orders and their items in one transaction
+    private void populate() throws SQLException {
+        String insertOrder = "INSERT INTO " + DatabaseManager.ORDERS_TABLE + " (id, player_uuid, status, created_at, " +
+                "expires_at, total_price, quantity, price_per_item, delivered_amount, material, version) " +
+                "VALUES (?, ?, 'PENDING', ?, ?, ?, 64, 2.5, 0, 'STONE', 0)";
+        String insertItem = "INSERT INTO " + DatabaseManager.ORDER_ITEMS_TABLE + " (order_id, item_type, amount, " +
+                "price_per_item, delivered_amount) VALUES (?, 'STONE', 32, 2.5, 0)";
+        long now = System.currentTimeMillis();
+        UUID[] players = new UUID[1000];
+        for (int i = 0; i < players.length; i++) {
+            players[i] = UUID.randomUUID();
+        }
+
+        try (Connection connection = database.getConnection();
+             PreparedStatement orderStatement = connection.prepareStatement(insertOrder);
+             PreparedStatement itemStatement = connection.prepareStatement(insertItem)) {
+            connection.setAutoCommit(false);
+            for (int id = 1; id <= orders; id++) {
+                orderStatement.setString(1, String.valueOf(id));
+                orderStatement.setString(2, players[id % players.length].toString());
+                orderStatement.setLong(3, now - id);
+                orderStatement.setLong(4, now + TimeUnit.DAYS.toMillis(7));
+                orderStatement.setDouble(5, 160.0);
+                orderStatement.addBatch();
+                for (int item = 0; item < ITEMS_PER_ORDER; item++) {
+                    itemStatement.setString(1, String.valueOf(id));
+                    itemStatement.addBatch();
+                }
+                if (id % INSERT_BATCH == 0) {
+                    orderStatement.executeBatch();
+                    itemStatement.executeBatch();
+                }
+            }
+            orderStatement.executeBatch();
+            itemStatement.executeBatch();
+            connection.commit();
+            connection.setAutoCommit(true);
+        }
+    }
+}
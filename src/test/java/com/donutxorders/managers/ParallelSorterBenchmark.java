@@ -0,0 +1,102 @@
+package com.donutxorders.managers;
+
+import com.donutxorders.models.Order;
+import com.donutxorders.models.OrderStatus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Sequential against parallel sort and filter of order lists, to find where
+ * performance.parallel-threshold should sit. The crossover is the smallest size at
+ * which the parallel variant wins. The parallelism values match the default pool
+ * (cores minus one) of 4- and 16-core machines; run with
+ * {@code -p parallelism=<cores - 1>} to measure only the machine at hand.
+ *
+ * Not run by surefire; after {@code mvn test-compile} run it with
+ * {@code java -cp target/test-classes:<test classpath> org.openjdk.jmh.Main ParallelSorterBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ParallelSorterBenchmark {
+
+    private static final OrderStatus[] STATUSES = OrderStatus.values();
+
+    @Param({"1000", "10000", "50000", "100000", "500000", "1000000"})
+    public int size;
+
+    @Param({"3", "15"})
+    public int parallelism;
+
+    private List<Order> orders;
+    private Comparator<Order> comparator;
+    private Predicate<Order> predicate;
+    private ParallelSorter sequential;
+    private ParallelSorter parallel;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Few distinct prices so the multi-key comparator falls through to later keys
+        Random random = new Random(42);
+        long now = System.currentTimeMillis();
+        orders = new ArrayList<>(size);
+        for (int id = 1; id <= size; id++) {
+            int quantity = 1 + random.nextInt(2304);
+            orders.add(new Order(id, UUID.randomUUID(), null, quantity, random.nextInt(50) / 2.0,
+                    random.nextInt(quantity), now - random.nextInt(1_000_000_000), 0L,
+                    STATUSES[random.nextInt(STATUSES.length)]));
+        }
+        comparator = OrderManager.comparatorFor("price,-created");
+        predicate = order -> order.getStatus() == OrderStatus.PENDING || order.getDeliveredAmount() * 2 > order.getQuantity();
+        sequential = new ParallelSorter(parallelism, Integer.MAX_VALUE);
+        parallel = new ParallelSorter(parallelism, 1);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        sequential.shutdown();
+        parallel.shutdown();
+    }
+
+    @Benchmark
+    public List<Order> sortSequential() {
+        return sequential.sort(orders, comparator);
+    }
+
+    @Benchmark
+    public List<Order> sortParallel() {
+        return parallel.sort(orders, comparator);
+    }
+
+    @Benchmark
+    public List<Order> filterSequential() {
+        return sequential.filter(orders, predicate);
+    }
+
+    @Benchmark
+    public List<Order> filterParallel() {
+        return parallel.filter(orders, predicate);
+    }
+}
@@ -0,0 +1,81 @@
+package com.donutxorders.models;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Rebasing an order on a row another writer changed after a version conflict.
+ */
+class OrderRebaseTest {
+
+    @Test
+    void localDeliveriesAreAddedToTheOtherWritersCount() {
+        Order order = stored(40, 1);
+        order.commitReservation(order.tryReserve(10));
+        order.drainChangedFields();
+        assertEquals(50, order.getDeliveredAmountForWrite());
+
+        // The write lost the race: another writer took the row from 40 to 45
+        order.restoreChanges(EnumSet.of(OrderField.DELIVERED_AMOUNT), false);
+        order.rebase(stored(45, 2));
+
+        assertEquals(55, order.getDeliveredAmount());
+        assertEquals(2, order.getVersion());
+        assertTrue(order.drainChangedFields().contains(OrderField.DELIVERED_AMOUNT));
+        assertEquals(55, order.getDeliveredAmountForWrite());
+        order.markWritten();
+        assertEquals(55, order.getStoredDeliveredAmount());
+    }
+
+    @Test
+    void unchangedCountAdoptsTheOtherWritersValue() {
+        Order order = stored(40, 1);
+        order.rebase(stored(45, 2));
+
+        assertEquals(45, order.getDeliveredAmount());
+        assertFalse(order.hasChanges());
+    }
+
+    @Test
+    void countNeverDropsBelowLocalCommits() {
+        Order order = stored(40, 1);
+        order.commitReservation(order.tryReserve(10));
+        int reserved = order.tryReserve(5);
+
+        // Another writer reset the row
+        order.rebase(stored(0, 2));
+
+        assertEquals(10, order.getDeliveredAmount());
+        assertEquals(reserved, order.getReservedAmount());
+    }
+
+    @Test
+    void countWrittenIsTheOneDrained() {
+        Order order = stored(40, 1);
+        order.commitReservation(order.tryReserve(10));
+        order.drainChangedFields();
+        // Committed after the drain; it goes out with the next write
+        order.commitReservation(order.tryReserve(3));
+        order.markWritten();
+
+        assertEquals(50, order.getStoredDeliveredAmount());
+        assertEquals(53, order.getDeliveredAmount());
+        assertTrue(order.drainChangedFields().contains(OrderField.DELIVERED_AMOUNT));
+        assertEquals(53, order.getDeliveredAmountForWrite());
+    }
+
+    // An order as loaded from a row with the given delivered amount and version
+    private static Order stored(int delivered, long version) {
+        Order order = new Order(1, UUID.randomUUID(), null, 100, 2.0, delivered,
+                System.currentTimeMillis(), Long.MAX_VALUE, OrderStatus.PENDING);
+        order.setVersion(version);
+        order.clearChanges();
+        return order;
+    }
+}
@@ -0,0 +1,145 @@
+package com.donutxorders.models;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Deliverers racing on one order through tryReserve, commitReservation and
+ * rollbackReservation, with and without the order being closed under them.
+ */
+class OrderReservationTest {
+
+    private static final int THREADS = 8;
+    private static final int ROUNDS = 10_000;
+    private static final int QUANTITY = 500;
+
+    @Test
+    void concurrentDeliveriesNeverOverfillTheOrder() throws Exception {
+        Order order = newOrder();
+        AtomicBoolean overfilled = new AtomicBoolean();
+
+        AtomicInteger attempts = new AtomicInteger();
+        runDeliverers(order, overfilled, null, () -> attempts.incrementAndGet() > THREADS * ROUNDS);
+
+        assertFalse(overfilled.get(), "delivered + reserved exceeded the quantity");
+        assertEquals(0, order.getReservedAmount());
+        assertTrue(order.getDeliveredAmount() <= QUANTITY);
+    }
+
+    @Test
+    void closingExcludesReservations() throws Exception {
+        Order order = newOrder();
+        AtomicBoolean overfilled = new AtomicBoolean();
+        AtomicInteger deliveredAtClose = new AtomicInteger(-1);
+        AtomicInteger grantedAfterClose = new AtomicInteger();
+        AtomicInteger attemptsAfterClose = new AtomicInteger();
+
+        Thread closer = new Thread(() -> {
+            // Close part-way through, while deliveries are in flight
+            while (order.getDeliveredAmount() < QUANTITY / 4) {
+                Thread.onSpinWait();
+            }
+            while (!order.tryClose(OrderStatus.CANCELLED)) {
+                Thread.onSpinWait();
+            }
+            deliveredAtClose.set(order.getDeliveredAmount());
+        });
+        closer.start();
+        // Deliverers keep trying well past the close
+        runDeliverers(order, overfilled, () -> {
+            if (deliveredAtClose.get() >= 0) {
+                grantedAfterClose.incrementAndGet();
+            }
+        }, () -> deliveredAtClose.get() >= 0 && attemptsAfterClose.incrementAndGet() > THREADS * ROUNDS);
+        closer.join();
+
+        assertFalse(overfilled.get(), "delivered + reserved exceeded the quantity");
+        assertTrue(deliveredAtClose.get() >= 0, "the order was never closed");
+        assertEquals(OrderStatus.CANCELLED, order.getStatus());
+        assertFalse(order.isOpen());
+        assertEquals(0, order.getReservedAmount());
+        assertEquals(deliveredAtClose.get(), order.getDeliveredAmount(), "a delivery committed after the close");
+        assertEquals(0, grantedAfterClose.get(), "a reservation was granted after the close");
+        assertEquals(0, order.tryReserve(1));
+        assertFalse(order.tryClose(OrderStatus.EXPIRED), "the order was closed twice");
+        assertEquals((QUANTITY - order.getDeliveredAmount()) * order.getPricePerItem(), order.getRefundAmount(), 1e-9);
+    }
+
+    @Test
+    void closeWaitsForReservationsInFlight() {
+        Order order = newOrder();
+        int reserved = order.tryReserve(10);
+        assertEquals(10, reserved);
+        assertFalse(order.tryClose(OrderStatus.EXPIRED), "closed while a delivery held a reservation");
+        assertTrue(order.isOpen());
+
+        order.commitReservation(reserved);
+        assertTrue(order.tryClose(OrderStatus.EXPIRED));
+        assertEquals(0, order.tryReserve(1));
+        assertEquals(10, order.getDeliveredAmount());
+        assertEquals((QUANTITY - 10) * order.getPricePerItem(), order.getRefundAmount(), 1e-9);
+    }
+
+    private static Order newOrder() {
+        return new Order(1, UUID.randomUUID(), null, QUANTITY, 2.0, 0,
+                System.currentTimeMillis(), Long.MAX_VALUE, OrderStatus.PENDING);
+    }
+
+    // Each deliverer reserves a few items, then either commits or rolls back, until told to stop
+    private static void runDeliverers(Order order, AtomicBoolean overfilled, Runnable onGranted, BooleanSupplier stop)
+            throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            threads.add(new Thread(() -> {
+                await(start);
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (!stop.getAsBoolean()) {
+                    int reserved = order.tryReserve(1 + random.nextInt(5));
+                    // A commit raises delivered before releasing its reservation, so
+                    // reading delivered first can only undercount
+                    int delivered = order.getDeliveredAmount();
+                    if (delivered + order.getReservedAmount() > QUANTITY) {
+                        overfilled.set(true);
+                    }
+                    if (reserved == 0) {
+                        continue;
+                    }
+                    if (onGranted != null) {
+                        onGranted.run();
+                    }
+                    if (random.nextInt(4) == 0) {
+                        order.commitReservation(reserved);
+                    } else {
+                        order.rollbackReservation(reserved);
+                    }
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}